@@ -0,0 +1,92 @@
+// 适配器调用基准 - 手写适配器 vs 生成的适配器（隐藏类 / LambdaMetafactory） vs Method.invoke
+
+package designpatterns;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdapterBenchmark {
+    // 目标接口：多一个被丢弃的参数，只能由隐藏类适配
+    interface Channel {
+        long apply(String tag, long value, int gain);
+    }
+
+    // 目标接口：参数一一对应，由 LambdaMetafactory 适配
+    interface Mix {
+        long mix(long value, int gain);
+    }
+
+    // 被适配者，方法体足够小，调用开销占主导
+    static class Mixer {
+        public long mix(long value, int gain) {
+            return value * gain + 1;
+        }
+    }
+
+    static final class HandWrittenChannel implements Channel {
+        private final Mixer mixer;
+
+        HandWrittenChannel(Mixer mixer) {
+            this.mixer = mixer;
+        }
+
+        @Override
+        public long apply(String tag, long value, int gain) {
+            return mixer.mix(value, gain);
+        }
+    }
+
+    private Mixer mixer;
+    private Channel handWritten;
+    private Channel hiddenClass;
+    private Mix lambda;
+    private Method method;
+    private long value = 42;
+    private int gain = 3;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        mixer = new Mixer();
+        handWritten = new HandWrittenChannel(mixer);
+        hiddenClass = AdapterGenerator.of(Channel.class, Mixer.class).map("apply", "mix", 1, 2).build().adapt(mixer);
+        lambda = AdapterGenerator.of(Mix.class, Mixer.class).map("mix", "mix").build().adapt(mixer);
+        method = Mixer.class.getMethod("mix", long.class, int.class);
+    }
+
+    @Benchmark
+    public long handWritten() {
+        return handWritten.apply("tag", value, gain);
+    }
+
+    @Benchmark
+    public long generatedHiddenClass() {
+        return hiddenClass.apply("tag", value, gain);
+    }
+
+    @Benchmark
+    public long generatedLambda() {
+        return lambda.mix(value, gain);
+    }
+
+    @Benchmark
+    public long reflection() throws ReflectiveOperationException {
+        return (long) method.invoke(mixer, value, gain);
+    }
+}
@@ -0,0 +1,332 @@
+// 分配与 GC 预算检查 - 逐个运行示例热路径，用线程分配计数统计每次操作分配的字节数，
+// 并统计测量期间的 GC 次数，与 allocation-budgets.properties 中的预算比较，超出时以非零状态退出
+//
+// 运行: mvn -B -P allocation-check verify
+//      java -Xms2g -Xmx2g -XX:+UseG1GC -cp benchmarks/target/benchmarks.jar designpatterns.AllocationBudgetCheck [名称正则]
+// 系统属性:
+//   -Dallocation.budgets=文件   使用指定预算文件代替 jar 内置的预算
+//   -Dallocation.update=true    只打印实测值（按预算文件格式），用于有意调整预算
+//   -Dallocation.jfr=文件.jfr   同时录制 JFR（含分配采样），预算超出时用 JMC 或 jfr print 定位分配来源
+
+package designpatterns;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+public class AllocationBudgetCheck {
+    static final String BUDGET_RESOURCE = "/allocation-budgets.properties";
+    private static final int WARMUP_ROUNDS = 5;
+
+    // 一次操作，返回值汇总到 sink，防止 JIT 把整段代码当作无用代码消除
+    interface HotPath {
+        long run(int i);
+    }
+
+    static final class Case {
+        final String name;
+        final int operations;
+        final Supplier<HotPath> setup;
+
+        Case(String name, int operations, Supplier<HotPath> setup) {
+            this.name = name;
+            this.operations = operations;
+            this.setup = setup;
+        }
+    }
+
+    static final class Result {
+        final String name;
+        final double bytesPerOp;
+        final long gcCount;
+
+        Result(String name, double bytesPerOp, long gcCount) {
+            this.name = name;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+        }
+    }
+
+    private static long sink;
+
+    static List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+        cases.add(new Case("observer.setState", 1_000_000, () -> {
+            Subject subject = new Subject();
+            FilteredObserverExample.CountingObserver counter = new FilteredObserverExample.CountingObserver();
+            for (int i = 0; i < 4; i++) {
+                subject.attach(counter);
+            }
+            subject.attach("order.created", counter);
+            subject.attach("order.*", counter);
+            // 中文前缀：字典树按 char 查找子节点，不装箱
+            subject.attach("库存.*", counter);
+            String[] states = {"order.created", "order.paid", "库存.不足", "order.shipped"};
+            return i -> {
+                subject.setState(states[i & 3]);
+                return counter.received;
+            };
+        }));
+        cases.add(new Case("observer.concreteObserver", 1_000_000, () -> {
+            Subject subject = new Subject();
+            subject.attach(new ConcreteObserver("Observer 1"));
+            subject.attach(new ConcreteObserver("Observer 2"));
+            String[] states = {"State 1", "State 2"};
+            return i -> {
+                subject.setState(states[i & 1]);
+                return i;
+            };
+        }));
+        cases.add(new Case("factory.getShape", 1_000_000, () -> {
+            String[] types = {"CIRCLE", "rectangle", "circle", "RECTANGLE"};
+            return i -> ShapeFactory.getShape(types[i & 3]).hashCode();
+        }));
+        cases.add(new Case("strategy.sortArray.int", 20_000, () -> {
+            Sorter sorter = new Sorter();
+            sorter.setStrategy(new QuickSortStrategy());
+            int[] template = new Random(42).ints(256).toArray();
+            int[] array = new int[template.length];
+            return i -> {
+                System.arraycopy(template, 0, array, 0, template.length);
+                sorter.sortArray(array);
+                return array[i & 255];
+            };
+        }));
+        cases.add(new Case("strategy.sortArray.long", 20_000, () -> {
+            Sorter sorter = new Sorter();
+            long[] template = new Random(42).longs(256).toArray();
+            long[] array = new long[template.length];
+            return i -> {
+                System.arraycopy(template, 0, array, 0, template.length);
+                sorter.sortArray(array);
+                return array[i & 255];
+            };
+        }));
+        cases.add(new Case("decorator.getCost", 1_000_000, () -> {
+            Coffee coffee = new ChocolateDecorator(new SugarDecorator(new MilkDecorator(new SimpleCoffee())));
+            return i -> (long) coffee.getCost();
+        }));
+        cases.add(new Case("decorator.getDescription", 1_000_000, () -> {
+            Coffee coffee = new ChocolateDecorator(new SugarDecorator(new MilkDecorator(new SimpleCoffee())));
+            return i -> coffee.getDescription().length();
+        }));
+        cases.add(new Case("composition.compose", 1_000_000, () -> {
+            CoffeeCompositionService service = new CoffeeCompositionService();
+            List<List<String>> orders = Arrays.asList(
+                    Arrays.asList("milk"), Arrays.asList("milk", "sugar"), Arrays.asList("chocolate", "milk"));
+            return i -> (long) service.compose(orders.get(i % 3)).getCost();
+        }));
+        // 缓存已满且全部被读过时的未命中：6 个常用组合持续被读，每次来一个新组合并连读四次。
+        // 新组合进入缓存时每次操作约 1 次未命中；若新组合被立即淘汰，约 2.5 次，分配量随之翻倍
+        cases.add(new Case("composition.evict", 100_000, () -> {
+            CoffeeCompositionService service = new CoffeeCompositionService(new SimpleCoffee(), 8);
+            String[] codes = {"milk", "sugar", "chocolate"};
+            List<List<String>> orders = new ArrayList<>();
+            for (int a = 0; a < 3; a++) {
+                for (int b = 0; b < 3; b++) {
+                    for (int c = 0; c < 3; c++) {
+                        orders.add(Arrays.asList(codes[a], codes[b], codes[c]));
+                    }
+                }
+            }
+            List<List<String>> hot = orders.subList(0, 6);
+            List<List<String>> fresh = orders.subList(6, orders.size());
+            return i -> {
+                long cost = 0;
+                for (int h = 0; h < hot.size(); h++) {
+                    cost += (long) service.compose(hot.get(h)).getCost();
+                }
+                List<String> order = fresh.get(i % fresh.size());
+                for (int k = 0; k < 4; k++) {
+                    cost += (long) service.compose(order).getCost();
+                }
+                return cost;
+            };
+        }));
+        cases.add(new Case("pricing.priceAll", 2_000, () -> {
+            CoffeePriceTable table = CoffeePriceTable.of(new SimpleCoffee());
+            CoffeeOrderBatch batch = new CoffeeOrderBatch(10_000);
+            Random random = new Random(42);
+            for (int i = 0; i < 10_000; i++) {
+                batch.add(0, random.nextInt(CoffeePriceTable.MASK_COUNT), 1 + random.nextInt(3));
+            }
+            BulkPricingEngine engine = new BulkPricingEngine();
+            long[] totals = new long[batch.size()];
+            return i -> engine.priceAll(batch, table, totals);
+        }));
+        cases.add(new Case("codec.encode", 1_000_000, () -> {
+            ProductEncoder encoder = new ProductEncoder(1 << 16);
+            Object[] products = {
+                    new Computer.Builder("Intel i7", "16GB").setStorage("1TB SSD").build(),
+                    new House.HouseBuilder().setFoundation("混凝土地基").setRoof("平屋顶").setHasGarage(true).build(),
+                    new VegMealBuilder().getMeal()
+            };
+            return i -> {
+                if ((i & 1023) == 0) {
+                    encoder.reset();
+                }
+                encoder.encode(products[i % 3]);
+                return i;
+            };
+        }));
+        cases.add(new Case("index.count", 2_000, () -> {
+            ComputerIndex index = new ComputerIndex();
+            String[] cpus = {"Intel i5", "Intel i7", "AMD Ryzen 7", "Apple M3"};
+            String[] rams = {"8GB", "16GB", "32GB"};
+            Random random = new Random(42);
+            for (int i = 0; i < 50_000; i++) {
+                index.add(new Computer.Builder(cpus[random.nextInt(cpus.length)], rams[random.nextInt(rams.length)])
+                        .setStorage(random.nextBoolean() ? "1TB SSD" : null)
+                        .buildInterned());
+            }
+            index.rebuildIndex();
+            ComputerQuery query = new ComputerQuery().cpu("AMD Ryzen 7").ram("16GB").hasStorage();
+            return i -> index.count(query);
+        }));
+        return cases;
+    }
+
+    static Result measure(Case c) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        HotPath path = c.setup.get();
+        // 预热让 JIT 完成编译（包括逃逸分析），测到的是稳定状态下的分配
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < c.operations; i++) {
+                sink += path.run(i);
+            }
+        }
+        System.gc();
+        long gcBefore = gcCount();
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < c.operations; i++) {
+            sink += path.run(i);
+        }
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        long gcs = gcCount() - gcBefore;
+        return new Result(c.name, (double) bytes / c.operations, gcs);
+    }
+
+    // 所有收集器（新生代与老年代）的累计次数
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    static Properties loadBudgets() throws IOException {
+        Properties budgets = new Properties();
+        String file = System.getProperty("allocation.budgets");
+        if (file != null) {
+            try (InputStream in = Files.newInputStream(Paths.get(file))) {
+                budgets.load(in);
+            }
+            return budgets;
+        }
+        try (InputStream in = AllocationBudgetCheck.class.getResourceAsStream(BUDGET_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("找不到预算文件: " + BUDGET_RESOURCE);
+            }
+            budgets.load(in);
+        }
+        return budgets;
+    }
+
+    // 返回超出预算（或缺少预算）的用例数
+    static int check(List<Result> results, Properties budgets) {
+        int failures = 0;
+        System.out.printf("%-28s %14s %10s %8s %8s  %s%n", "热路径", "字节/次", "预算", "GC次数", "预算", "结果");
+        for (Result r : results) {
+            String bytesBudget = budgets.getProperty(r.name + ".bytesPerOp");
+            String gcBudget = budgets.getProperty(r.name + ".maxGcCount");
+            String verdict;
+            if (bytesBudget == null || gcBudget == null) {
+                verdict = "缺少预算";
+                failures++;
+            } else if (r.bytesPerOp > Double.parseDouble(bytesBudget)) {
+                verdict = "分配超出预算";
+                failures++;
+            } else if (r.gcCount > Long.parseLong(gcBudget)) {
+                verdict = "GC 次数超出预算";
+                failures++;
+            } else {
+                verdict = "OK";
+            }
+            System.out.printf("%-28s %14.1f %10s %8d %8s  %s%n", r.name, r.bytesPerOp,
+                    bytesBudget == null ? "-" : bytesBudget, r.gcCount, gcBudget == null ? "-" : gcBudget, verdict);
+        }
+        return failures;
+    }
+
+    // JDK 自带的 profile 配置解析失败只可能是 JDK 安装损坏，按 I/O 错误报告
+    private static Recording startRecording(String file) throws IOException {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new IOException("无法解析 JFR 配置 profile", e);
+        }
+        Recording recording = new Recording(configuration);
+        recording.setDestination(Paths.get(file));
+        recording.start();
+        return recording;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Pattern include = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        boolean update = Boolean.getBoolean("allocation.update");
+        String jfrFile = System.getProperty("allocation.jfr");
+        // 示例的热路径输出统一关闭，避免把输出本身的分配算进去
+        OutputSink previous = ConsoleOutput.setSink(new DirectOutputSink(System.out, OutputLevel.OFF));
+
+        Recording recording = jfrFile == null ? null : startRecording(jfrFile);
+        List<Result> results = new ArrayList<>();
+        try {
+            for (Case c : cases()) {
+                if (include.matcher(c.name).find()) {
+                    results.add(measure(c));
+                }
+            }
+        } finally {
+            ConsoleOutput.setSink(previous);
+            if (recording != null) {
+                recording.stop();
+                recording.close();
+                System.out.println("JFR 录制已写入 " + jfrFile);
+            }
+        }
+
+        if (update) {
+            Map<String, String> lines = new LinkedHashMap<>();
+            for (Result r : results) {
+                lines.put(r.name + ".bytesPerOp", String.valueOf((long) Math.ceil(r.bytesPerOp)));
+                lines.put(r.name + ".maxGcCount", String.valueOf(r.gcCount));
+            }
+            lines.forEach((key, value) -> System.out.println(key + "=" + value));
+            return;
+        }
+        int failures = check(results, loadBudgets());
+        System.out.println(failures == 0 ? "\n全部热路径在预算内" : "\n" + failures + " 个热路径超出预算");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+// 结账流程负载生成器 - 多线程按目标速率驱动 ShoppingCart.addItem -> setPaymentStrategy -> checkout，
+// 支付由可配置延迟分布的桩实现模拟，报告 p50/p99/p99.9 与吞吐量
+//
+// 两种模式:
+//   closed  每个线程按 速率/线程数 的固定节拍发起下一次结账，上一次未完成时不会发起（闭环）
+//   open    到达时刻由全局计划决定（恒定间隔或泊松到达），与完成情况无关，空闲线程按顺序领取（开环）
+// 协调遗漏校正：响应时间从"计划发起时刻"算起，而不是线程实际开始的时刻。
+// 系统卡顿时，本应在卡顿期间发起的请求会带着排队时间计入统计，不会因为生成器被拖慢而消失。
+// 同时单独报告从实际开始算起的服务时间，两者差距就是被遗漏的排队时间。
+//
+// 运行: java -cp benchmarks/target/benchmarks.jar designpatterns.CheckoutLoadGenerator \
+//          --mode open --arrival poisson --rate 4000 --threads 16 --duration 20s --warmup 5s --items 3 \
+//          --provider creditcard=5,lognormal:2ms:0.5 --provider alipay=3,exp:1ms \
+//          --provider wechat=2,uniform:500us:3ms@0.001:100ms
+// 参数:
+//   --mode closed|open            默认 open
+//   --arrival constant|poisson    open 模式的到达方式，默认 constant
+//   --rate <每秒次数>             默认 2000
+//   --threads <n>                 默认 16
+//   --duration <t> --warmup <t>   测量时长与预热时长，默认 20s 与 5s
+//   --items <n>                   每单商品数，默认 3
+//   --provider 名称=权重,延迟分布  可重复，权重为正整数；不指定时使用上面示例中的三个渠道
+// 延迟分布: fixed:<t> | uniform:<min>:<max> | exp:<mean> | lognormal:<median>:<sigma>
+//          可追加 @<概率>:<t> 模拟长尾，如 @0.001:100ms 表示千分之一的支付额外卡顿 100ms
+// 时间单位: ns, us, ms, s, m
+
+package designpatterns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class CheckoutLoadGenerator {
+    // 提前这么多纳秒醒来，剩余时间自旋等待，parkNanos 本身有几十微秒的误差
+    private static final long SPIN_THRESHOLD_NANOS = 100_000L;
+
+    enum Mode {
+        CLOSED,
+        OPEN
+    }
+
+    // 支付延迟分布
+    interface LatencyDistribution {
+        long sampleNanos(ThreadLocalRandom random);
+
+        static LatencyDistribution parse(String spec) {
+            int at = spec.indexOf('@');
+            if (at >= 0) {
+                LatencyDistribution body = parse(spec.substring(0, at));
+                String[] tail = spec.substring(at + 1).split(":");
+                if (tail.length != 2) {
+                    throw new IllegalArgumentException("长尾格式应为 @<概率>:<时间>: " + spec);
+                }
+                double probability = Double.parseDouble(tail[0]);
+                long extra = parseNanos(tail[1]);
+                return random -> body.sampleNanos(random) + (random.nextDouble() < probability ? extra : 0);
+            }
+            String[] parts = spec.split(":");
+            switch (parts[0]) {
+                case "fixed":
+                    long fixed = parseNanos(parts[1]);
+                    return random -> fixed;
+                case "uniform":
+                    long min = parseNanos(parts[1]);
+                    long max = parseNanos(parts[2]);
+                    return random -> min + (long) (random.nextDouble() * (max - min));
+                case "exp":
+                    double mean = parseNanos(parts[1]);
+                    return random -> (long) (-mean * Math.log(1 - random.nextDouble()));
+                case "lognormal":
+                    double median = parseNanos(parts[1]);
+                    double sigma = Double.parseDouble(parts[2]);
+                    return random -> (long) (median * Math.exp(sigma * random.nextGaussian()));
+                default:
+                    throw new IllegalArgumentException("未知的延迟分布: " + spec);
+            }
+        }
+    }
+
+    // 支付桩：按分布阻塞当前线程，模拟调用外部支付渠道
+    static final class StubPaymentProvider implements PaymentStrategy {
+        private final String name;
+        private final String spec;
+        private final LatencyDistribution latency;
+        private final LongAdder payments = new LongAdder();
+
+        StubPaymentProvider(String name, String spec) {
+            this.name = name;
+            this.spec = spec;
+            this.latency = LatencyDistribution.parse(spec);
+        }
+
+        @Override
+        public void pay(double amount) {
+            waitUntil(System.nanoTime() + latency.sampleNanos(ThreadLocalRandom.current()));
+            payments.increment();
+        }
+    }
+
+    static final class Config {
+        Mode mode = Mode.OPEN;
+        int threads = 16;
+        double rate = 2_000;
+        boolean poisson;
+        long durationNanos = parseNanos("20s");
+        long warmupNanos = parseNanos("5s");
+        int items = 3;
+        final List<StubPaymentProvider> providers = new ArrayList<>();
+        final List<Integer> weights = new ArrayList<>();
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("参数缺少取值: " + args[i]);
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--mode":
+                        config.mode = Mode.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        config.threads = Integer.parseInt(value);
+                        break;
+                    case "--rate":
+                        config.rate = Double.parseDouble(value);
+                        break;
+                    case "--arrival":
+                        if (!"poisson".equals(value) && !"constant".equals(value)) {
+                            throw new IllegalArgumentException("到达方式应为 constant 或 poisson: " + value);
+                        }
+                        config.poisson = "poisson".equals(value);
+                        break;
+                    case "--duration":
+                        config.durationNanos = parseNanos(value);
+                        break;
+                    case "--warmup":
+                        config.warmupNanos = parseNanos(value);
+                        break;
+                    case "--items":
+                        config.items = Integer.parseInt(value);
+                        break;
+                    case "--provider":
+                        config.addProvider(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + args[i]);
+                }
+            }
+            if (config.providers.isEmpty()) {
+                config.addProvider("creditcard=5,lognormal:2ms:0.5");
+                config.addProvider("alipay=3,exp:1ms");
+                config.addProvider("wechat=2,uniform:500us:3ms@0.001:100ms");
+            }
+            if (config.threads <= 0 || config.rate <= 0) {
+                throw new IllegalArgumentException("线程数与目标速率必须大于0");
+            }
+            return config;
+        }
+
+        // 格式: 名称=权重,延迟分布
+        private void addProvider(String value) {
+            int eq = value.indexOf('=');
+            int comma = value.indexOf(',', eq);
+            if (eq <= 0 || comma < 0) {
+                throw new IllegalArgumentException("支付渠道格式应为 名称=权重,延迟分布: " + value);
+            }
+            int weight = Integer.parseInt(value.substring(eq + 1, comma));
+            if (weight <= 0) {
+                throw new IllegalArgumentException("支付渠道权重必须大于0: " + value);
+            }
+            providers.add(new StubPaymentProvider(value.substring(0, eq), value.substring(comma + 1)));
+            weights.add(weight);
+        }
+
+        // 按权重展开成查找表，选择渠道时只需一次随机下标
+        StubPaymentProvider[] providerTable() {
+            List<StubPaymentProvider> table = new ArrayList<>();
+            for (int i = 0; i < providers.size(); i++) {
+                for (int w = 0; w < weights.get(i); w++) {
+                    table.add(providers.get(i));
+                }
+            }
+            return table.toArray(new StubPaymentProvider[0]);
+        }
+    }
+
+    private final Config config;
+    private final StubPaymentProvider[] providerTable;
+    // 从计划时刻算起（已校正）与从实际开始算起（未校正）
+    private final LatencyHistogram responseTime = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final AtomicLong nextArrival = new AtomicLong();
+    private final LongAdder unserved = new LongAdder();
+    // 吞吐量按测量窗口内完成的次数计算，过载时预热期间积压的请求也算在内
+    private final LongAdder completedInWindow = new LongAdder();
+    // 第一个异常退出的负载线程的异常，其他线程看到后停止，run() 结束时抛出
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private long[] poissonOffsets;
+    private long startNanos;
+    private long measureFromNanos;
+    private long endNanos;
+
+    CheckoutLoadGenerator(Config config) {
+        this.config = config;
+        this.providerTable = config.providerTable();
+    }
+
+    static long parseNanos(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        String[] units = {"ns", "us", "ms", "s", "m"};
+        long[] scale = {1L, 1_000L, 1_000_000L, 1_000_000_000L, 60_000_000_000L};
+        for (int i = 0; i < units.length; i++) {
+            // ns/us/ms 排在 s 之前，先匹配较长的后缀
+            if (v.endsWith(units[i])) {
+                return (long) (Double.parseDouble(v.substring(0, v.length() - units[i].length())) * scale[i]);
+            }
+        }
+        throw new IllegalArgumentException("时间需要单位 (ns/us/ms/s/m): " + value);
+    }
+
+    static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // 一次完整的结账流程
+    private void checkoutOnce(ThreadLocalRandom random) {
+        ShoppingCart cart = new ShoppingCart();
+        for (int i = 0; i < config.items; i++) {
+            cart.addItem(1 + random.nextInt(10_000) / 100.0);
+        }
+        cart.setPaymentStrategy(providerTable[random.nextInt(providerTable.length)]);
+        cart.checkout();
+    }
+
+    private void record(long intended, long started, long finished) {
+        // 预热期间计划的请求不计入
+        if (intended - measureFromNanos >= 0) {
+            responseTime.record(finished - intended);
+            serviceTime.record(finished - started);
+        }
+        if (finished - measureFromNanos >= 0 && finished - endNanos < 0) {
+            completedInWindow.increment();
+        }
+    }
+
+    // 时间到了仍有积压，说明目标速率超出了处理能力，不再执行（两种模式相同）。
+    // 这些请求至少等到了结束时刻，按 endNanos - intended 计入响应时间（偏小的下限），
+    // 否则过载越严重丢掉的长尾越多，协调遗漏校正就失效了；没有开始执行，不计入服务时间
+    private void recordUnserved(long intended) {
+        unserved.increment();
+        if (intended - measureFromNanos >= 0) {
+            responseTime.record(endNanos - intended);
+        }
+    }
+
+    // 闭环：线程 t 的第 k 次请求计划在 start + (k * threads + t) / rate 发起
+    private void runClosed(int thread) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double interval = 1e9 * config.threads / config.rate;
+        double offset = 1e9 * thread / config.rate;
+        for (long k = 0; ; k++) {
+            long intended = startNanos + (long) (offset + k * interval);
+            if (intended - endNanos >= 0 || failure.get() != null) {
+                return;
+            }
+            if (System.nanoTime() - endNanos >= 0) {
+                recordUnserved(intended);
+                continue;
+            }
+            waitUntil(intended);
+            long started = System.nanoTime();
+            checkoutOnce(random);
+            record(intended, started, System.nanoTime());
+        }
+    }
+
+    // 开环：全局第 n 个到达由空闲线程领取，线程都忙时到达在计划中排队，等待时间计入响应时间
+    private void runOpen() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long offset = arrivalOffset(nextArrival.getAndIncrement());
+            if (offset >= endNanos - startNanos || failure.get() != null) {
+                return;
+            }
+            long intended = startNanos + offset;
+            if (System.nanoTime() - endNanos >= 0) {
+                recordUnserved(intended);
+                continue;
+            }
+            waitUntil(intended);
+            long started = System.nanoTime();
+            checkoutOnce(random);
+            record(intended, started, System.nanoTime());
+        }
+    }
+
+    private long arrivalOffset(long n) {
+        if (poissonOffsets == null) {
+            return (long) (n * 1e9 / config.rate);
+        }
+        return n < poissonOffsets.length ? poissonOffsets[(int) n] : Long.MAX_VALUE;
+    }
+
+    // 泊松到达的间隔服从指数分布，预先生成整个计划，运行中不再产生随机数竞争
+    private void planPoissonArrivals() {
+        long total = config.warmupNanos + config.durationNanos;
+        List<Long> offsets = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double meanGap = 1e9 / config.rate;
+        double t = 0;
+        while (t < total) {
+            offsets.add((long) t);
+            t += -meanGap * Math.log(1 - random.nextDouble());
+        }
+        poissonOffsets = offsets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    void run() throws InterruptedException {
+        if (config.mode == Mode.OPEN && config.poisson) {
+            planPoissonArrivals();
+        }
+        Thread[] workers = new Thread[config.threads];
+        startNanos = System.nanoTime() + 100_000_000L;
+        measureFromNanos = startNanos + config.warmupNanos;
+        endNanos = measureFromNanos + config.durationNanos;
+        for (int t = 0; t < workers.length; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    if (config.mode == Mode.CLOSED) {
+                        runClosed(thread);
+                    } else {
+                        runOpen();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "checkout-load-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // 部分线程失败时统计结果不完整，整个运行按失败处理
+        if (failure.get() != null) {
+            throw new IllegalStateException("负载线程异常退出", failure.get());
+        }
+    }
+
+    void report() {
+        LatencyHistogram.Snapshot response = responseTime.snapshot();
+        LatencyHistogram.Snapshot service = serviceTime.snapshot();
+        double seconds = config.durationNanos / 1e9;
+        System.out.printf("测量窗口内完成 %d 次结账，吞吐 %.1f/s（目标 %.1f/s），统计延迟 %d 次%n",
+                completedInWindow.sum(), completedInWindow.sum() / seconds, config.rate, response.getCount());
+        if (unserved.sum() > 0) {
+            System.out.printf("结束时仍有 %d 个请求未处理，目标速率超出处理能力（已按等到结束时刻计入响应时间）%n",
+                    unserved.sum());
+        }
+        System.out.printf("%n%-10s %10s %10s %10s %10s %10s%n", "", "p50", "p99", "p99.9", "max", "mean");
+        printRow("响应时间", response);
+        printRow("服务时间", service);
+        System.out.println("（响应时间从计划发起时刻算起，已校正协调遗漏；服务时间从实际开始算起，未校正）");
+
+        System.out.println("\n支付渠道（含预热期间）:");
+        for (StubPaymentProvider provider : config.providers) {
+            System.out.printf("  %-12s %-36s %d 次%n", provider.name, provider.spec, provider.payments.sum());
+        }
+    }
+
+    private static void printRow(String label, LatencyHistogram.Snapshot snapshot) {
+        System.out.printf("%-10s %10s %10s %10s %10s %10s%n", label,
+                formatNanos(snapshot.valueAt(0.50)), formatNanos(snapshot.valueAt(0.99)),
+                formatNanos(snapshot.valueAt(0.999)), formatNanos(snapshot.getMax()),
+                formatNanos((long) snapshot.getMean()));
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L) {
+            return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+        }
+        if (nanos >= 1_000_000L) {
+            return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Config config = Config.parse(args);
+        System.out.printf("模式 %s，%s到达，目标 %.1f/s，%d 线程，预热 %s，测量 %s，每单 %d 件商品%n",
+                config.mode.name().toLowerCase(Locale.ROOT), config.poisson ? "泊松" : "恒定间隔", config.rate,
+                config.threads, formatNanos(config.warmupNanos), formatNanos(config.durationNanos), config.items);
+        // 结账流程的控制台输出全部关闭，测的是流程本身而不是终端
+        OutputSink previous = ConsoleOutput.setSink(new DirectOutputSink(System.out, OutputLevel.OFF));
+        CheckoutLoadGenerator generator = new CheckoutLoadGenerator(config);
+        try {
+            generator.run();
+        } finally {
+            ConsoleOutput.setSink(previous);
+        }
+        generator.report();
+    }
+}
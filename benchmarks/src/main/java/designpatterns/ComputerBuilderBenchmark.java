@@ -0,0 +1,53 @@
+// 建造者基准 - 每次新建 vs 复用建造者+对象池 vs 共享实例
+
+package designpatterns;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComputerBuilderBenchmark {
+    private final Computer.Builder builder = new Computer.Builder(null, null);
+    private final Computer.Pool pool = new Computer.Pool(4);
+
+    @Benchmark
+    public Computer newBuilder() {
+        return new Computer.Builder("Intel i7", "16GB")
+                .setStorage("512GB SSD")
+                .setGraphicsCard("RTX 4060")
+                .build();
+    }
+
+    @Benchmark
+    public void reusedBuilderPooled(Blackhole blackhole) {
+        Computer computer = builder.reset("Intel i7", "16GB")
+                                   .setStorage("512GB SSD")
+                                   .setGraphicsCard("RTX 4060")
+                                   .buildInto(pool.acquire());
+        blackhole.consume(computer);
+        pool.release(computer);
+    }
+
+    @Benchmark
+    public Computer interned() {
+        return new Computer.Builder("Intel i7", "16GB")
+                .setStorage("512GB SSD")
+                .setGraphicsCard("RTX 4060")
+                .buildInterned();
+    }
+}
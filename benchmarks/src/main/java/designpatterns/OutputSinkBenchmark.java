@@ -0,0 +1,65 @@
+// 输出通道基准 - 多线程下 synchronized PrintStream vs 无锁异步批量输出
+
+package designpatterns;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class OutputSinkBenchmark {
+    @Param({"direct", "async", "off"})
+    public String sinkType;
+
+    private OutputSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (sinkType) {
+            case "direct":
+                sink = new DirectOutputSink(
+                        new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8),
+                        OutputLevel.INFO);
+                break;
+            case "async":
+                sink = new AsyncBatchingOutputSink(OutputStream.nullOutputStream(), OutputLevel.INFO,
+                        1 << 16, 64 * 1024);
+                break;
+            default:
+                sink = new DirectOutputSink(System.out, OutputLevel.OFF);
+                break;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sink.close();
+    }
+
+    @Benchmark
+    public void observerUpdate() {
+        sink.write(OutputLevel.INFO, "Observer 1 received update: State Changed!");
+    }
+}
@@ -0,0 +1,86 @@
+// 排序基准 - 装箱 List<Long> + Comparator vs 原始类型专用策略
+
+package designpatterns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveSortBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    private long[] longSource;
+    private double[] doubleSource;
+    private long[] longs;
+    private double[] doubles;
+    private List<Long> boxedLongs;
+    private List<Double> boxedDoubles;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        longSource = new long[size];
+        doubleSource = new double[size];
+        for (int i = 0; i < size; i++) {
+            longSource[i] = random.nextLong();
+            doubleSource[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        longs = longSource.clone();
+        doubles = doubleSource.clone();
+        boxedLongs = new ArrayList<>(size);
+        boxedDoubles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            boxedLongs.add(longSource[i]);
+            boxedDoubles.add(doubleSource[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Long> boxedLongComparator() {
+        boxedLongs.sort(Long::compare);
+        return boxedLongs;
+    }
+
+    @Benchmark
+    public long[] longStrategy() {
+        new LongQuickSortStrategy().sort(longs);
+        return longs;
+    }
+
+    @Benchmark
+    public List<Double> boxedDoubleComparator() {
+        boxedDoubles.sort(Double::compare);
+        return boxedDoubles;
+    }
+
+    @Benchmark
+    public double[] doubleStrategy() {
+        new DoubleQuickSortStrategy().sort(doubles);
+        return doubles;
+    }
+}
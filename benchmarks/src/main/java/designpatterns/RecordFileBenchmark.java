@@ -0,0 +1,86 @@
+// 记录文件写入基准 - 装饰器流逐字段写入 vs RecordFileWriter 批量写入
+
+package designpatterns;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordFileBenchmark {
+    @Param({"100000"})
+    public int records;
+
+    private RecordSchema schema;
+    private Path file;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        schema = new RecordSchema.Builder()
+                .addInt("id")
+                .addString("name", 32)
+                .addDouble("value")
+                .build();
+        file = Files.createTempFile("bench", ".rec");
+        names = new String[1024];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "record-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long streamDecorators() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file.toFile())))) {
+            for (int i = 0; i < records; i++) {
+                out.writeInt(i);
+                out.writeUTF(names[i & 1023]);
+                out.writeDouble(i * 0.5);
+            }
+            return out.size();
+        }
+    }
+
+    @Benchmark
+    public long batchedChannel() throws IOException {
+        try (RecordFileWriter writer = new RecordFileWriter(file, schema, 8192)) {
+            for (int i = 0; i < records; i++) {
+                writer.beginRecord()
+                      .putInt(0, i)
+                      .putString(1, names[i & 1023])
+                      .putDouble(2, i * 0.5)
+                      .endRecord();
+            }
+            return writer.getRecordCount();
+        }
+    }
+}
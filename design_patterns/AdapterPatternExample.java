@@ -1,5 +1,7 @@
 // Adapter Pattern Example - 让不兼容的接口能够协同工作
 
+package designpatterns;
+
 // 目标接口 - 客户端期望的接口
 interface MediaPlayer {
     void play(String audioType, String fileName);
@@ -8,19 +10,19 @@ interface MediaPlayer {
 // 被适配者 - 已存在的具体实现
 class Mp3Player {
     public void playMp3(String fileName) {
-        System.out.println("播放MP3文件: " + fileName);
+        ConsoleOutput.println("播放MP3文件: " + fileName);
     }
 }
 
 class Mp4Player {
     public void playMp4(String fileName) {
-        System.out.println("播放MP4文件: " + fileName);
+        ConsoleOutput.println("播放MP4文件: " + fileName);
     }
 }
 
 class VlcPlayer {
     public void playVlc(String fileName) {
-        System.out.println("播放VLC文件: " + fileName);
+        ConsoleOutput.println("播放VLC文件: " + fileName);
     }
 }
 
@@ -0,0 +1,426 @@
+// Async Output Example - 可插拔的输出通道，替代热路径上的 System.out.println
+// System.out 内部是 synchronized 的 PrintStream，多线程高频输出时锁竞争严重
+
+package designpatterns;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// 输出级别 - 低于阈值的输出直接丢弃，OFF 表示全部关闭
+enum OutputLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
+
+// 输出通道接口
+interface OutputSink extends AutoCloseable {
+    boolean isEnabled(OutputLevel level);
+
+    void setLevel(OutputLevel level);
+
+    void write(OutputLevel level, String line);
+
+    // 阻塞直到此前写入的内容全部输出
+    void flush();
+
+    @Override
+    void close();
+}
+
+// 直接输出 - 与原来的 System.out.println 行为完全一致，作为默认通道
+class DirectOutputSink implements OutputSink {
+    private final PrintStream out;
+    private volatile OutputLevel level;
+
+    public DirectOutputSink(PrintStream out, OutputLevel level) {
+        this.out = out;
+        this.level = level;
+    }
+
+    @Override
+    public boolean isEnabled(OutputLevel level) {
+        return level != OutputLevel.OFF && level.ordinal() >= this.level.ordinal();
+    }
+
+    @Override
+    public void setLevel(OutputLevel level) {
+        this.level = level;
+    }
+
+    @Override
+    public void write(OutputLevel level, String line) {
+        if (isEnabled(level)) {
+            out.println(line);
+        }
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
+
+// 多生产者单消费者的无锁环形队列
+// 每个槽位带一个序号：序号 == 位置 表示可写，序号 == 位置+1 表示可读
+final class MpscRingBuffer {
+    private final byte[][] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 只有消费者线程读写
+    private long head;
+
+    MpscRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("容量必须是2的幂: " + capacity);
+        }
+        this.slots = new byte[capacity][];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // 队列已满时返回 false
+    boolean offer(byte[] message) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = message;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    byte[] poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        byte[] message = slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, head + slots.length);
+        head++;
+        return message;
+    }
+
+    // 已经被生产者占用的位置总数
+    long producedCount() {
+        return tail.get();
+    }
+}
+
+// 异步批量输出 - 生产者只负责编码成字节并入队，后台线程攒批后一次写出
+class AsyncBatchingOutputSink implements OutputSink {
+    private static final long IDLE_PARK_NANOS = 200_000L;
+
+    private final MpscRingBuffer ring;
+    private final OutputStream out;
+    private final byte[] batch;
+    private final Thread drainer;
+    private final Thread shutdownHook;
+    private volatile OutputLevel level;
+    private volatile boolean running = true;
+    // 已通过 running 检查、尚未完成入队的生产者数，后台线程退出前等它们归零
+    private final AtomicInteger activeWriters = new AtomicInteger();
+    // 已经写出的消息数，flush() 以此判断是否完成
+    private volatile long written;
+    // 输出流写入失败的次数与最近一次的异常；输出通道本身出错时不能再通过输出通道报告，由调用方查询
+    private final AtomicLong writeErrors = new AtomicLong();
+    private volatile IOException lastWriteError;
+
+    public AsyncBatchingOutputSink(OutputStream out, OutputLevel level, int capacity, int batchBytes) {
+        this.ring = new MpscRingBuffer(capacity);
+        this.out = out;
+        this.level = level;
+        this.batch = new byte[batchBytes];
+        this.drainer = new Thread(this::drainLoop, "async-output-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+        // 进程退出前保证队列中的内容全部输出
+        this.shutdownHook = new Thread(this::close, "async-output-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    // 直接写标准输出的文件描述符，绕开 System.out 的锁
+    public static AsyncBatchingOutputSink toStdout(OutputLevel level) {
+        return new AsyncBatchingOutputSink(new FileOutputStream(FileDescriptor.out), level, 1 << 14, 64 * 1024);
+    }
+
+    @Override
+    public boolean isEnabled(OutputLevel level) {
+        return level != OutputLevel.OFF && level.ordinal() >= this.level.ordinal();
+    }
+
+    @Override
+    public void setLevel(OutputLevel level) {
+        this.level = level;
+    }
+
+    @Override
+    public void write(OutputLevel level, String line) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        // 在调用线程完成编码，后台线程只做字节拷贝
+        byte[] bytes = (line + '\n').getBytes(StandardCharsets.UTF_8);
+        // 先登记再检查 running：后台线程看到计数归零后，新来的生产者一定能看到已关闭
+        activeWriters.incrementAndGet();
+        try {
+            if (!running) {
+                // 关闭后（包括 JVM 退出时的关闭钩子）仍在输出的线程改为同步直接写出
+                writeDirect(bytes);
+                return;
+            }
+            int spins = 0;
+            while (!ring.offer(bytes)) {
+                // 队列满时施加背压，而不是丢弃输出
+                LockSupport.unpark(drainer);
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } finally {
+            activeWriters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = ring.producedCount();
+        while (written < target && drainer.isAlive()) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM 正在退出，忽略
+            }
+        }
+    }
+
+    private void drainLoop() {
+        long drained = 0;
+        while (true) {
+            // 停止后还要等已通过检查的生产者入队完成，再做最后一轮输出
+            boolean stopping = !running && activeWriters.get() == 0;
+            int length = 0;
+            byte[] message;
+            while ((message = ring.poll()) != null) {
+                if (length + message.length > batch.length) {
+                    length = writeBatch(length);
+                    if (message.length > batch.length) {
+                        writeDirect(message);
+                        drained++;
+                        continue;
+                    }
+                }
+                System.arraycopy(message, 0, batch, length, message.length);
+                length += message.length;
+                drained++;
+            }
+            writeBatch(length);
+            written = drained;
+            if (stopping) {
+                // 停止标志之前入队的消息已经全部写出
+                return;
+            }
+            if (running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // 关闭期间后台线程的最后一轮输出可能与直接写出的生产者并发，按整批加锁避免字节交错
+    private int writeBatch(int length) {
+        if (length > 0) {
+            synchronized (out) {
+                try {
+                    out.write(batch, 0, length);
+                    out.flush();
+                } catch (IOException e) {
+                    recordWriteError(e);
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void writeDirect(byte[] message) {
+        synchronized (out) {
+            try {
+                out.write(message);
+                out.flush();
+            } catch (IOException e) {
+                recordWriteError(e);
+            }
+        }
+    }
+
+    // 出错的批次直接丢弃，不重试，避免输出设备故障时阻塞生产者
+    private void recordWriteError(IOException e) {
+        lastWriteError = e;
+        writeErrors.incrementAndGet();
+    }
+
+    public long getWriteErrorCount() {
+        return writeErrors.get();
+    }
+
+    // 没有发生过写入错误时返回 null
+    public IOException getLastWriteError() {
+        return lastWriteError;
+    }
+}
+
+// 全局输出入口 - 各示例的热路径统一通过这里输出，默认保持同步输出到 System.out
+final class ConsoleOutput {
+    private static volatile OutputSink sink = new DirectOutputSink(System.out, OutputLevel.INFO);
+
+    private ConsoleOutput() {
+    }
+
+    public static OutputSink getSink() {
+        return sink;
+    }
+
+    // 替换输出通道，返回旧通道，由调用方决定是否关闭
+    public static OutputSink setSink(OutputSink newSink) {
+        OutputSink old = sink;
+        sink = newSink;
+        old.flush();
+        return old;
+    }
+
+    public static boolean isEnabled(OutputLevel level) {
+        return sink.isEnabled(level);
+    }
+
+    public static void println(String line) {
+        sink.write(OutputLevel.INFO, line);
+    }
+
+    public static void println(OutputLevel level, String line) {
+        sink.write(level, line);
+    }
+}
+
+public class AsyncOutputExample {
+    private static final int THREADS = 4;
+    private static final int LINES_PER_THREAD = 200_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== 异步批量输出示例 ===\n");
+
+        System.out.println("1. 切换为异步输出:");
+        OutputSink previous = ConsoleOutput.setSink(AsyncBatchingOutputSink.toStdout(OutputLevel.INFO));
+        new ConcreteObserver("Observer 1").update("通过异步通道输出");
+        new Circle().draw();
+        ConsoleOutput.println(OutputLevel.DEBUG, "DEBUG 级别低于阈值，不会输出");
+        ConsoleOutput.getSink().flush();
+
+        System.out.println("\n2. 关闭输出:");
+        ConsoleOutput.getSink().setLevel(OutputLevel.OFF);
+        new Circle().draw();
+        System.out.println("(Circle.draw() 没有任何输出)");
+        ConsoleOutput.setSink(previous).close();
+
+        System.out.println("\n3. 输出设备出错时只计数，不影响调用方:");
+        AsyncBatchingOutputSink broken = new AsyncBatchingOutputSink(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("输出设备已断开");
+            }
+        }, OutputLevel.INFO, 16, 1024);
+        broken.write(OutputLevel.INFO, "这一行无法写出");
+        broken.flush();
+        broken.close();
+        System.out.println("写出失败 " + broken.getWriteErrorCount() + " 次，最近一次: "
+                + broken.getLastWriteError().getMessage());
+
+        System.out.println("\n4. 性能对比 (" + THREADS + " 线程 x " + LINES_PER_THREAD + " 行，输出到空设备):");
+        PrintStream synchronizedOut = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+        long syncNanos = run(new DirectOutputSink(synchronizedOut, OutputLevel.INFO));
+        AsyncBatchingOutputSink async = new AsyncBatchingOutputSink(
+                OutputStream.nullOutputStream(), OutputLevel.INFO, 1 << 16, 64 * 1024);
+        long asyncNanos = run(async);
+        async.close();
+        System.out.printf("PrintStream 同步输出: %.1fms%n", syncNanos / 1e6);
+        System.out.printf("异步批量输出(含 flush): %.1fms%n", asyncNanos / 1e6);
+    }
+
+    private static long run(OutputSink sink) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < LINES_PER_THREAD; i++) {
+                    sink.write(OutputLevel.INFO, "Observer " + id + " received update: " + i);
+                }
+            });
+            threads[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.flush();
+        return System.nanoTime() - begin;
+    }
+}
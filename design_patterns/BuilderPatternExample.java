@@ -1,5 +1,80 @@
 // Builder Pattern Example - 分步骤构建复杂对象
 
+package designpatterns;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+// 弱引用驻留表 - 相同配置的产品只保留一个共享实例，不再被引用时自动回收
+class WeakInterner<T> {
+    private final ConcurrentHashMap<WeakKey<T>, WeakKey<T>> table = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    
+    public T intern(T candidate) {
+        expungeStaleEntries();
+        WeakKey<T> key = new WeakKey<>(candidate, queue);
+        while (true) {
+            WeakKey<T> existing = table.putIfAbsent(key, key);
+            if (existing == null) {
+                return candidate;
+            }
+            T canonical = existing.get();
+            if (canonical != null) {
+                return canonical;
+            }
+            // 已被回收但尚未清理的条目，移除后重试
+            table.remove(existing, existing);
+        }
+    }
+    
+    public int size() {
+        expungeStaleEntries();
+        return table.size();
+    }
+    
+    private void expungeStaleEntries() {
+        Object stale;
+        while ((stale = queue.poll()) != null) {
+            table.remove(stale, stale);
+        }
+    }
+    
+    private static final class WeakKey<T> extends WeakReference<T> {
+        private final int hash;
+        
+        WeakKey(T referent, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.hash = referent.hashCode();
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof WeakKey)) {
+                return false;
+            }
+            Object mine = get();
+            return mine != null && mine.equals(((WeakKey<?>) obj).get());
+        }
+    }
+}
+
 // 产品类
 class Computer {
     // 必需属性
@@ -12,29 +87,107 @@ class Computer {
     private String coolingSystem;
     private String motherboard;
     
+    // toString() 结果按需生成并缓存
+    private String description;
+    
+    // 相同配置共享同一个实例
+    private static final WeakInterner<Computer> INTERNER = new WeakInterner<>();
+    
+    // 共享实例的标记，共享实例被原地覆盖会改变其他持有者看到的配置和驻留表中的哈希值
+    private boolean interned;
+    
     // 私有构造函数
     private Computer(Builder builder) {
+        copyFrom(builder);
+    }
+    
+    // 空实例，仅供对象池预分配使用
+    private Computer() {
+    }
+    
+    private void copyFrom(Builder builder) {
         this.cpu = builder.cpu;
         this.ram = builder.ram;
         this.storage = builder.storage;
         this.graphicsCard = builder.graphicsCard;
         this.coolingSystem = builder.coolingSystem;
         this.motherboard = builder.motherboard;
+        this.description = null;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Computer)) {
+            return false;
+        }
+        Computer other = (Computer) obj;
+        return Objects.equals(cpu, other.cpu)
+                && Objects.equals(ram, other.ram)
+                && Objects.equals(storage, other.storage)
+                && Objects.equals(graphicsCard, other.graphicsCard)
+                && Objects.equals(coolingSystem, other.coolingSystem)
+                && Objects.equals(motherboard, other.motherboard);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(cpu, ram, storage, graphicsCard, coolingSystem, motherboard);
     }
     
     @Override
     public String toString() {
-        return "Computer配置:\n" +
-               "  CPU: " + cpu + "\n" +
-               "  RAM: " + ram + "\n" +
-               "  存储: " + (storage != null ? storage : "未配置") + "\n" +
-               "  显卡: " + (graphicsCard != null ? graphicsCard : "未配置") + "\n" +
-               "  散热: " + (coolingSystem != null ? coolingSystem : "未配置") + "\n" +
-               "  主板: " + (motherboard != null ? motherboard : "未配置");
+        String result = description;
+        if (result == null) {
+            result = "Computer配置:\n" +
+                     "  CPU: " + cpu + "\n" +
+                     "  RAM: " + ram + "\n" +
+                     "  存储: " + (storage != null ? storage : "未配置") + "\n" +
+                     "  显卡: " + (graphicsCard != null ? graphicsCard : "未配置") + "\n" +
+                     "  散热: " + (coolingSystem != null ? coolingSystem : "未配置") + "\n" +
+                     "  主板: " + (motherboard != null ? motherboard : "未配置");
+            description = result;
+        }
+        return result;
+    }
+    
+    public String getCpu() {
+        return cpu;
+    }
+    
+    public String getRam() {
+        return ram;
+    }
+    
+    public String getStorage() {
+        return storage;
+    }
+    
+    public String getGraphicsCard() {
+        return graphicsCard;
+    }
+    
+    public String getCoolingSystem() {
+        return coolingSystem;
+    }
+    
+    public String getMotherboard() {
+        return motherboard;
+    }
+    
+    // 当前共享实例数量，即不同配置的数量
+    public static int internedCount() {
+        return INTERNER.size();
     }
     
     // 静态建造者类
     public static class Builder {
+        // 每个线程缓存一个建造者，配合 reset() 复用，避免热路径上反复创建
+        private static final ThreadLocal<Builder> THREAD_BUILDER =
+                ThreadLocal.withInitial(() -> new Builder(null, null));
+        
         // 必需属性
         private String cpu;
         private String ram;
@@ -72,10 +225,95 @@ class Computer {
             return this;
         }
         
+        // 清空所有属性并重新设置必需参数，使同一个建造者可以反复使用
+        public Builder reset(String cpu, String ram) {
+            this.cpu = cpu;
+            this.ram = ram;
+            this.storage = null;
+            this.graphicsCard = null;
+            this.coolingSystem = null;
+            this.motherboard = null;
+            return this;
+        }
+        
+        // 获取当前线程专属的建造者（已重置），不能跨线程传递
+        public static Builder forCurrentThread(String cpu, String ram) {
+            return THREAD_BUILDER.get().reset(cpu, ram);
+        }
+        
         // 构建最终产品
         public Computer build() {
             return new Computer(this);
         }
+        
+        // 返回与当前配置相等的共享实例，不能交给 Pool 或 buildInto
+        public Computer buildInterned() {
+            Computer candidate = new Computer(this);
+            // 在发布前标记：候选实例要么成为共享实例，要么被丢弃
+            candidate.interned = true;
+            return INTERNER.intern(candidate);
+        }
+        
+        // 把当前配置写入一个预分配的实例，不产生新对象
+        // target 必须来自 Computer.Pool，且调用方独占该实例
+        public Computer buildInto(Computer target) {
+            checkNotInterned(target);
+            target.copyFrom(this);
+            return target;
+        }
+    }
+    
+    // 线程封闭的对象池 - 每个线程各持有一个池，借出/归还都不需要加锁
+    public static class Pool {
+        private final Computer[] free;
+        private int size;
+        
+        public Pool(int capacity) {
+            this.free = new Computer[capacity];
+            for (int i = 0; i < capacity; i++) {
+                free[i] = new Computer();
+            }
+            this.size = capacity;
+        }
+        
+        // 池空时退化为新建实例
+        public Computer acquire() {
+            if (size == 0) {
+                return new Computer();
+            }
+            Computer computer = free[--size];
+            free[size] = null;
+            return computer;
+        }
+        
+        // 归还后实例会被下一次 buildInto 覆盖，调用方不能再持有它
+        public void release(Computer computer) {
+            checkNotInterned(computer);
+            if (size < free.length) {
+                computer.clear();
+                free[size++] = computer;
+            }
+        }
+        
+        public int available() {
+            return size;
+        }
+    }
+    
+    private static void checkNotInterned(Computer computer) {
+        if (computer.interned) {
+            throw new IllegalArgumentException("共享实例不能被复用或覆盖");
+        }
+    }
+    
+    private void clear() {
+        this.cpu = null;
+        this.ram = null;
+        this.storage = null;
+        this.graphicsCard = null;
+        this.coolingSystem = null;
+        this.motherboard = null;
+        this.description = null;
     }
 }
 
@@ -88,6 +326,10 @@ class House {
     private boolean hasSwimmingPool;
     private String interiorDesign;
     
+    private String description;
+    
+    private static final WeakInterner<House> INTERNER = new WeakInterner<>();
+    
     private House(HouseBuilder builder) {
         this.foundation = builder.foundation;
         this.structure = builder.structure;
@@ -97,15 +339,70 @@ class House {
         this.interiorDesign = builder.interiorDesign;
     }
     
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof House)) {
+            return false;
+        }
+        House other = (House) obj;
+        return hasGarage == other.hasGarage
+                && hasSwimmingPool == other.hasSwimmingPool
+                && Objects.equals(foundation, other.foundation)
+                && Objects.equals(structure, other.structure)
+                && Objects.equals(roof, other.roof)
+                && Objects.equals(interiorDesign, other.interiorDesign);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(foundation, structure, roof, hasGarage, hasSwimmingPool, interiorDesign);
+    }
+    
     @Override
     public String toString() {
-        return "房屋配置:\n" +
-               "  地基: " + foundation + "\n" +
-               "  结构: " + structure + "\n" +
-               "  屋顶: " + roof + "\n" +
-               "  车库: " + (hasGarage ? "有" : "无") + "\n" +
-               "  游泳池: " + (hasSwimmingPool ? "有" : "无") + "\n" +
-               "  室内设计: " + (interiorDesign != null ? interiorDesign : "标准装修");
+        String result = description;
+        if (result == null) {
+            result = "房屋配置:\n" +
+                     "  地基: " + foundation + "\n" +
+                     "  结构: " + structure + "\n" +
+                     "  屋顶: " + roof + "\n" +
+                     "  车库: " + (hasGarage ? "有" : "无") + "\n" +
+                     "  游泳池: " + (hasSwimmingPool ? "有" : "无") + "\n" +
+                     "  室内设计: " + (interiorDesign != null ? interiorDesign : "标准装修");
+            description = result;
+        }
+        return result;
+    }
+    
+    public String getFoundation() {
+        return foundation;
+    }
+    
+    public String getStructure() {
+        return structure;
+    }
+    
+    public String getRoof() {
+        return roof;
+    }
+    
+    public boolean hasGarage() {
+        return hasGarage;
+    }
+    
+    public boolean hasSwimmingPool() {
+        return hasSwimmingPool;
+    }
+    
+    public String getInteriorDesign() {
+        return interiorDesign;
+    }
+    
+    public static int internedCount() {
+        return INTERNER.size();
     }
     
     public static class HouseBuilder {
@@ -149,6 +446,11 @@ class House {
         public House build() {
             return new House(this);
         }
+        
+        // 返回与当前配置相等的共享实例
+        public House buildInterned() {
+            return INTERNER.intern(new House(this));
+        }
     }
 }
 
@@ -177,6 +479,18 @@ class Meal {
         this.dessert = dessert;
     }
     
+    public String getBurger() {
+        return burger;
+    }
+    
+    public String getDrink() {
+        return drink;
+    }
+    
+    public String getDessert() {
+        return dessert;
+    }
+    
     @Override
     public String toString() {
         return "套餐内容:\n" +
@@ -264,6 +578,110 @@ class MealDirector {
     }
 }
 
+// 并行指导者 - 每个步骤在独立的建造者实例上执行，最后在调用线程合并结果
+// 建造者之间不共享状态，因此 VegMealBuilder 等可变建造者无需加锁
+class ParallelMealDirector {
+    private final Supplier<? extends MealBuilder> builderFactory;
+    private final Executor executor;
+    
+    // JDK 21+ 可以传入 Executors.newVirtualThreadPerTaskExecutor()，每个步骤一个虚拟线程
+    public ParallelMealDirector(Supplier<? extends MealBuilder> builderFactory, Executor executor) {
+        this.builderFactory = builderFactory;
+        this.executor = executor;
+    }
+    
+    public Meal constructMeal() {
+        return startMeal(true).join();
+    }
+    
+    public Meal constructVegetarianMeal() {
+        return startMeal(false).join();
+    }
+    
+    // 批量构建：所有套餐的所有步骤同时提交，总耗时接近单个最慢步骤
+    public List<Meal> constructMeals(int count) {
+        List<CompletableFuture<Meal>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(startMeal(true));
+        }
+        List<Meal> meals = new ArrayList<>(count);
+        for (CompletableFuture<Meal> future : futures) {
+            meals.add(future.join());
+        }
+        return meals;
+    }
+    
+    private CompletableFuture<Meal> startMeal(boolean withDessert) {
+        CompletableFuture<String> burger = CompletableFuture.supplyAsync(() -> {
+            MealBuilder builder = builderFactory.get();
+            builder.buildBurger();
+            return builder.getMeal().getBurger();
+        }, executor);
+        CompletableFuture<String> drink = CompletableFuture.supplyAsync(() -> {
+            MealBuilder builder = builderFactory.get();
+            builder.buildDrink();
+            return builder.getMeal().getDrink();
+        }, executor);
+        CompletableFuture<String> dessert = withDessert
+                ? CompletableFuture.supplyAsync(() -> {
+                    MealBuilder builder = builderFactory.get();
+                    builder.buildDessert();
+                    return builder.getMeal().getDessert();
+                }, executor)
+                : CompletableFuture.completedFuture(null);
+        
+        return CompletableFuture.allOf(burger, drink, dessert).thenApply(ignored -> {
+            Meal meal = new Meal();
+            meal.setBurger(burger.join());
+            meal.setDrink(drink.join());
+            meal.setDessert(dessert.join());
+            return meal;
+        });
+    }
+}
+
+// 模拟每个步骤都要查询库存、价格等外部服务
+class DelayedMealBuilder implements MealBuilder {
+    private final MealBuilder delegate;
+    private final long delayMillis;
+    
+    public DelayedMealBuilder(MealBuilder delegate, long delayMillis) {
+        this.delegate = delegate;
+        this.delayMillis = delayMillis;
+    }
+    
+    @Override
+    public void buildBurger() {
+        pause();
+        delegate.buildBurger();
+    }
+    
+    @Override
+    public void buildDrink() {
+        pause();
+        delegate.buildDrink();
+    }
+    
+    @Override
+    public void buildDessert() {
+        pause();
+        delegate.buildDessert();
+    }
+    
+    @Override
+    public Meal getMeal() {
+        return delegate.getMeal();
+    }
+    
+    private void pause() {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
 public class BuilderPatternExample {
     public static void main(String[] args) {
         System.out.println("=== 建造者模式示例 ===\n");
@@ -335,11 +753,94 @@ public class BuilderPatternExample {
         Meal nonVegMeal = director2.constructVegetarianMeal(); // 只要汉堡和饮料
         System.out.println(nonVegMeal);
         
+        System.out.println();
+        
+        // 并行套餐建造：每个步骤模拟20ms外部调用
+        demonstrateParallelMeals();
+        
+        // 建造者复用与对象池
+        System.out.println("\n4. 建造者复用与对象池:");
+        demonstrateBuilderReuse();
+        
+        // 相同配置共享实例
+        System.out.println("\n5. 相同配置共享实例:");
+        demonstrateInterning();
+        
         // 建造者模式优势演示
-        System.out.println("\n4. 建造者模式优势:");
+        System.out.println("\n6. 建造者模式优势:");
         demonstrateBuilderAdvantages();
     }
     
+    private static void demonstrateInterning() {
+        Computer first = null;
+        boolean allSame = true;
+        for (int i = 0; i < 100000; i++) {
+            Computer computer = new Computer.Builder("Intel i7", "16GB")
+                                    .setStorage(i % 2 == 0 ? "512GB SSD" : "1TB SSD")
+                                    .buildInterned();
+            if (i == 0) {
+                first = computer;
+            } else if (i % 2 == 0) {
+                allSame &= computer == first;
+            }
+        }
+        System.out.println("构建10万次，共享实例数量: " + Computer.internedCount());
+        System.out.println("相同配置返回同一实例: " + allSame);
+        System.out.println("toString() 结果已缓存: " + (first.toString() == first.toString()));
+        
+        House house1 = new House.HouseBuilder().setFoundation("砖石地基").setRoof("铁皮屋顶").buildInterned();
+        House house2 = new House.HouseBuilder().setFoundation("砖石地基").setRoof("铁皮屋顶").buildInterned();
+        System.out.println("两栋相同房屋是否为同一实例: " + (house1 == house2));
+    }
+    
+    private static void demonstrateParallelMeals() {
+        int meals = 50;
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < meals; i++) {
+            new MealDirector(new DelayedMealBuilder(new VegMealBuilder(), 20)).constructMeal();
+        }
+        System.out.println("串行构建" + meals + "份套餐耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            ParallelMealDirector parallelDirector = new ParallelMealDirector(
+                    () -> new DelayedMealBuilder(new VegMealBuilder(), 20), executor);
+            startTime = System.currentTimeMillis();
+            List<Meal> result = parallelDirector.constructMeals(meals);
+            System.out.println("并行构建" + result.size() + "份套餐耗时: "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            System.out.println(result.get(0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private static void demonstrateBuilderReuse() {
+        Computer.Pool pool = new Computer.Pool(16);
+        Computer.Builder builder = Computer.Builder.forCurrentThread("Intel i9", "64GB");
+        Computer pooled = builder.setStorage("2TB SSD")
+                                 .setGraphicsCard("RTX 4090")
+                                 .buildInto(pool.acquire());
+        System.out.println(pooled);
+        pool.release(pooled);
+        
+        int iterations = 1000000;
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < iterations; i++) {
+            new Computer.Builder("Intel i5", "8GB").setStorage("512GB SSD").build();
+        }
+        System.out.println("每次新建建造者100万次耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        
+        startTime = System.currentTimeMillis();
+        for (int i = 0; i < iterations; i++) {
+            Computer computer = builder.reset("Intel i5", "8GB")
+                                       .setStorage("512GB SSD")
+                                       .buildInto(pool.acquire());
+            pool.release(computer);
+        }
+        System.out.println("复用建造者+对象池100万次耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+    
     private static void demonstrateBuilderAdvantages() {
         System.out.println("建造者模式的主要优势:");
         System.out.println("1. 将复杂对象的构建与其表示分离");
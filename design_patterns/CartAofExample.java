@@ -0,0 +1,765 @@
+// Cart AOF Example - 仿 Redis AOF 的购物车追加日志
+// addItem/checkout 先追加到日志再修改内存，三种刷盘策略 always/everysec/no；
+// 后台线程批量写入，同一批次内的多个购物车共享一次 fsync（组提交）；
+// 日志重写时把当前状态写成快照（base），之后的操作写入新的增量文件（incr），
+// 启动时加载快照并重放增量尾部即可恢复
+
+package designpatterns;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// 刷盘策略，与 Redis appendfsync 含义一致；例外是结账记录，任何策略下都等落盘后才返回（见 appendCheckout）
+enum FsyncPolicy {
+    // 每次写入都等待 fsync 完成后才返回，最多丢失0条
+    ALWAYS,
+    // 后台每秒 fsync 一次，宕机最多丢失约1秒的数据
+    EVERYSEC,
+    // 只写入操作系统缓冲，由操作系统决定何时落盘
+    NO
+}
+
+// 日志记录格式：类型(1) + 购物车ID(8) + 金额(8) + CRC32(4)，定长21字节
+final class CartLogRecord {
+    static final int SIZE = 21;
+    static final byte ADD_ITEM = 1;
+    static final byte CHECKOUT = 2;
+    // 只出现在快照文件中，金额为购物车当前总额
+    static final byte SNAPSHOT = 3;
+
+    private CartLogRecord() {
+    }
+
+    static void write(ByteBuffer buffer, byte type, long cartId, double amount) {
+        int start = buffer.position();
+        buffer.put(type).putLong(cartId).putDouble(amount);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    // 校验失败返回 false，用于识别宕机时写了一半的尾部记录
+    static boolean verify(ByteBuffer buffer) {
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, SIZE - 4);
+        return (int) crc.getValue() == buffer.getInt(start + SIZE - 4);
+    }
+}
+
+// 购物车追加日志
+// 目录结构：appendonly.manifest 记录当前的 base 文件与按顺序排列的 incr 文件
+class CartAppendOnlyLog implements AutoCloseable {
+    private static final String MANIFEST = "appendonly.manifest";
+    private static final int INITIAL_BUFFER = 64 * 1024;
+    // 自动重写失败后的重试间隔，连续失败时翻倍，最长1小时（与 Redis 相同）
+    private static final long REWRITE_RETRY_NANOS = 60_000_000_000L;
+    private static final long MAX_REWRITE_RETRY_NANOS = 3_600_000_000_000L;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final int autoRewritePercentage;
+    private final long autoRewriteMinBytes;
+
+    // lock 保护内存状态、待写缓冲和序号；ioLock 保证文件写入与切换增量文件的顺序
+    private final Object lock = new Object();
+    private final Object ioLock = new Object();
+    private final Map<Long, Double> openCarts = new HashMap<>();
+    private final Map<Long, Double> recovered;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER);
+    private long appendedSeq;
+    private long durableSeq;
+    // 不是 always 策略时，需要立即落盘的最大序号（结账记录）
+    private long syncRequestedSeq;
+    private boolean unsynced;
+    private long lastSyncNanos = System.nanoTime();
+    private boolean closed;
+    private IOException failure;
+
+    // 以下文件状态由 ioLock 保护
+    private FileChannel channel;
+    private Path base;
+    private final List<Path> incrs = new ArrayList<>();
+    private int generation;
+    private long baseBytes;
+    private long incrBytes;
+    // 后台写入线程与重写线程都会 fsync
+    private final LongAdder syncCount = new LongAdder();
+
+    // 连续重写失败的次数与下次允许自动重写的时刻，由 ioLock 保护
+    private int rewriteFailures;
+    private long nextAutoRewriteNanos;
+    private final AtomicBoolean rewriting = new AtomicBoolean();
+    private volatile CompletableFuture<Void> rewrite = CompletableFuture.completedFuture(null);
+    private final Thread writer;
+
+    private CartAppendOnlyLog(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.policy = builder.policy;
+        this.autoRewritePercentage = builder.autoRewritePercentage;
+        this.autoRewriteMinBytes = builder.autoRewriteMinBytes;
+        Files.createDirectories(directory);
+        recover();
+        this.recovered = Collections.unmodifiableMap(new HashMap<>(openCarts));
+        this.writer = new Thread(this::writeLoop, "aof-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    // ---------- 写入 ----------
+
+    public void appendAddItem(long cartId, double price) {
+        append(CartLogRecord.ADD_ITEM, cartId, price);
+    }
+
+    // 结账记录不论刷盘策略都等到落盘才返回，调用方在返回后才能执行支付等不可撤销的操作
+    public void appendCheckout(long cartId) {
+        long seq = append(CartLogRecord.CHECKOUT, cartId, 0);
+        if (policy != FsyncPolicy.ALWAYS) {
+            synchronized (lock) {
+                syncRequestedSeq = Math.max(syncRequestedSeq, seq);
+                lock.notifyAll();
+            }
+            awaitDurable(seq);
+        }
+    }
+
+    private long append(byte type, long cartId, double amount) {
+        long seq;
+        synchronized (lock) {
+            checkWritable();
+            if (pending.remaining() < CartLogRecord.SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            CartLogRecord.write(pending, type, cartId, amount);
+            apply(openCarts, type, cartId, amount);
+            seq = ++appendedSeq;
+            lock.notifyAll();
+        }
+        if (policy == FsyncPolicy.ALWAYS) {
+            awaitDurable(seq);
+        }
+        return seq;
+    }
+
+    private void awaitDurable(long seq) {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (durableSeq < seq && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableSeq < seq) {
+                throw new UncheckedIOException("追加日志写入失败", failure);
+            }
+        }
+    }
+
+    // 与 Redis 一样，日志写入出错后拒绝继续写入，避免内存状态与日志不一致
+    private void checkWritable() {
+        if (closed) {
+            throw new IllegalStateException("追加日志已关闭");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("追加日志写入失败", failure);
+        }
+    }
+
+    private static void apply(Map<Long, Double> carts, byte type, long cartId, double amount) {
+        switch (type) {
+            case CartLogRecord.ADD_ITEM:
+                carts.merge(cartId, amount, Double::sum);
+                break;
+            case CartLogRecord.CHECKOUT:
+                carts.remove(cartId);
+                break;
+            case CartLogRecord.SNAPSHOT:
+                carts.put(cartId, amount);
+                break;
+            default:
+                throw new IllegalStateException("未知的日志类型: " + type);
+        }
+    }
+
+    // ---------- 后台写入线程 ----------
+
+    private void writeLoop() {
+        while (true) {
+            boolean sync;
+            synchronized (lock) {
+                while (!closed && pending.position() == 0 && !syncDue() && syncRequestedSeq <= durableSeq) {
+                    try {
+                        // everysec 下有未刷盘的数据时定时醒来
+                        lock.wait(unsynced && policy == FsyncPolicy.EVERYSEC ? 100 : 0);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                sync = policy == FsyncPolicy.ALWAYS || syncDue() || syncRequestedSeq > durableSeq;
+            }
+            try {
+                synchronized (ioLock) {
+                    flush(sync);
+                    maybeAutoRewrite();
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    // 写入失败后拒绝后续写入，并唤醒所有等待落盘的调用方
+    private void fail(IOException e) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = e;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private boolean syncDue() {
+        return policy == FsyncPolicy.EVERYSEC && unsynced && System.nanoTime() - lastSyncNanos >= 1_000_000_000L;
+    }
+
+    // 调用方持有 ioLock：取走待写缓冲，在锁外写文件，期间新的写入进入另一块缓冲
+    private void flush(boolean sync) throws IOException {
+        ByteBuffer batch;
+        long seq;
+        synchronized (lock) {
+            batch = takePending();
+            seq = appendedSeq;
+        }
+        writeBatch(batch, seq, sync);
+    }
+
+    // 调用方持有 lock
+    private ByteBuffer takePending() {
+        ByteBuffer batch = pending;
+        pending = spare != null && spare.capacity() >= batch.capacity() ? spare : ByteBuffer.allocate(batch.capacity());
+        spare = null;
+        return batch;
+    }
+
+    private void writeBatch(ByteBuffer batch, long seq, boolean sync) throws IOException {
+        batch.flip();
+        incrBytes += batch.remaining();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        if (sync) {
+            channel.force(false);
+            syncCount.increment();
+        }
+        batch.clear();
+        synchronized (lock) {
+            spare = batch;
+            if (sync) {
+                lastSyncNanos = System.nanoTime();
+                durableSeq = seq;
+                unsynced = false;
+                lock.notifyAll();
+            } else if (seq > durableSeq) {
+                unsynced = true;
+            }
+        }
+    }
+
+    // ---------- 重写 ----------
+
+    // 调用方持有 ioLock
+    private void maybeAutoRewrite() {
+        // 与 Redis 相同：增量部分相对上次重写后的快照大小增长了 percentage% 时触发
+        // 失败后退避，避免每次刷盘都启动一个注定失败的重写线程
+        if (autoRewriteMinBytes > 0 && incrBytes >= autoRewriteMinBytes
+                && incrBytes >= baseBytes * autoRewritePercentage / 100
+                && (rewriteFailures == 0 || System.nanoTime() - nextAutoRewriteNanos >= 0)) {
+            rewriteInBackground();
+        }
+    }
+
+    // 后台重写：切换到新的增量文件后，在后台线程把切换时刻的状态写成新快照，
+    // 完成后更新 manifest 并删除旧文件。重写期间的写入不受影响
+    public CompletableFuture<Void> rewriteInBackground() {
+        if (!rewriting.compareAndSet(false, true)) {
+            return rewrite;
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rewrite = future;
+        Thread thread = new Thread(() -> {
+            try {
+                doRewrite();
+                synchronized (ioLock) {
+                    rewriteFailures = 0;
+                }
+                future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                synchronized (ioLock) {
+                    rewriteFailures++;
+                    long delay = REWRITE_RETRY_NANOS << Math.min(rewriteFailures - 1, 6);
+                    nextAutoRewriteNanos = System.nanoTime() + Math.min(delay, MAX_REWRITE_RETRY_NANOS);
+                }
+                future.completeExceptionally(e);
+            } finally {
+                rewriting.set(false);
+            }
+        }, "aof-rewrite");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private void doRewrite() throws IOException {
+        Map<Long, Double> snapshot;
+        int newGeneration;
+        Path oldBase;
+        List<Path> oldIncrs;
+        synchronized (ioLock) {
+            ByteBuffer batch;
+            long seq;
+            synchronized (lock) {
+                checkWritable();
+                // 快照与取走待写缓冲在同一临界区内：快照包含的写入全部落在旧增量文件，之后的写入只进入新增量文件
+                snapshot = new HashMap<>(openCarts);
+                batch = takePending();
+                seq = appendedSeq;
+            }
+            try {
+                writeBatch(batch, seq, true);
+            } catch (IOException e) {
+                // 已取走的记录没有写入旧增量文件，必须像后台写入线程一样进入失败状态，
+                // 否则之后的刷盘会把 durableSeq 推过这些丢失的记录
+                fail(e);
+                throw e;
+            }
+            newGeneration = ++generation;
+            Path newIncr = directory.resolve("appendonly.incr." + newGeneration);
+            FileChannel newChannel = FileChannel.open(newIncr, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            oldBase = base;
+            oldIncrs = new ArrayList<>(incrs);
+            incrs.add(newIncr);
+            try {
+                // 先让 manifest 引用新增量文件，此后宕机也能通过旧快照 + 全部增量恢复
+                writeManifest(base, incrs);
+            } catch (IOException e) {
+                // 继续写旧增量文件，撤销切换
+                incrs.remove(newIncr);
+                newChannel.close();
+                Files.deleteIfExists(newIncr);
+                throw e;
+            }
+            channel.close();
+            channel = newChannel;
+            incrBytes = 0;
+        }
+
+        Path newBase = directory.resolve("appendonly.base." + newGeneration);
+        Path tmp = directory.resolve("appendonly.base." + newGeneration + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(CartLogRecord.SIZE, snapshot.size() * CartLogRecord.SIZE));
+        for (Map.Entry<Long, Double> entry : snapshot.entrySet()) {
+            CartLogRecord.write(buffer, CartLogRecord.SNAPSHOT, entry.getKey(), entry.getValue());
+        }
+        buffer.flip();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, newBase, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (ioLock) {
+            base = newBase;
+            incrs.removeAll(oldIncrs);
+            baseBytes = Files.size(newBase);
+            writeManifest(base, incrs);
+        }
+        if (oldBase != null) {
+            Files.deleteIfExists(oldBase);
+        }
+        for (Path incr : oldIncrs) {
+            Files.deleteIfExists(incr);
+        }
+    }
+
+    private void writeManifest(Path base, List<Path> incrs) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (base != null) {
+            sb.append("base ").append(base.getFileName()).append('\n');
+        }
+        for (Path incr : incrs) {
+            sb.append("incr ").append(incr.getFileName()).append('\n');
+        }
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+            out.force(true);
+        }
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------- 恢复 ----------
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path tmp : stale) {
+                Files.delete(tmp);
+            }
+        }
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (line.startsWith("base ")) {
+                    base = directory.resolve(line.substring(5));
+                } else if (line.startsWith("incr ")) {
+                    incrs.add(directory.resolve(line.substring(5)));
+                }
+            }
+        }
+        deleteUnlisted();
+        generation = 0;
+        if (base != null) {
+            generation = Math.max(generation, generationOf(base));
+            baseBytes = Files.size(base);
+            replay(base, false);
+        }
+        for (int i = 0; i < incrs.size(); i++) {
+            Path incr = incrs.get(i);
+            generation = Math.max(generation, generationOf(incr));
+            // 只有最后一个增量文件可能在宕机时写了一半
+            replay(incr, i == incrs.size() - 1);
+        }
+        if (incrs.isEmpty()) {
+            Path incr = directory.resolve("appendonly.incr." + (++generation));
+            Files.deleteIfExists(incr);
+            incrs.add(incr);
+            writeManifest(base, incrs);
+        }
+        Path last = incrs.get(incrs.size() - 1);
+        channel = FileChannel.open(last, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        incrBytes = channel.size();
+        channel.position(incrBytes);
+    }
+
+    // 切换增量文件或写完新快照后、manifest 更新前宕机，会留下 manifest 之外的文件。
+    // 它们的内容都已包含在 manifest 列出的文件中，直接删除；否则 generation 回退后
+    // 再次重写会因同名文件已存在而失败
+    private void deleteUnlisted() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "appendonly.{base,incr}.*")) {
+            for (Path file : files) {
+                if (!file.equals(base) && !incrs.contains(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static int generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    // 整个文件一次读入后顺序解析；尾部不完整或校验失败时截断到最后一条完整记录
+    private void replay(Path file, boolean truncateTail) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= CartLogRecord.SIZE && CartLogRecord.verify(buffer)) {
+            byte type = buffer.get();
+            long cartId = buffer.getLong();
+            double amount = buffer.getDouble();
+            buffer.getInt();
+            apply(openCarts, type, cartId, amount);
+        }
+        if (buffer.hasRemaining()) {
+            if (!truncateTail) {
+                throw new EOFException("日志文件损坏: " + file + "，偏移 " + buffer.position());
+            }
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                out.truncate(buffer.position());
+                out.force(true);
+            }
+        }
+    }
+
+    // ---------- 查询与关闭 ----------
+
+    // 打开日志时恢复出的未结账购物车
+    public Map<Long, Double> getRecoveredCarts() {
+        return recovered;
+    }
+
+    public Map<Long, Double> getOpenCarts() {
+        synchronized (lock) {
+            return new HashMap<>(openCarts);
+        }
+    }
+
+    public long getSyncCount() {
+        return syncCount.sum();
+    }
+
+    public long getAppendCount() {
+        synchronized (lock) {
+            return appendedSeq;
+        }
+    }
+
+    // 等待进行中的重写，写出剩余数据并 fsync（所有策略在关闭时都会刷盘）
+    @Override
+    public void close() throws IOException {
+        rewrite.exceptionally(e -> null).join();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            try {
+                if (failure == null) {
+                    flush(true);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private FsyncPolicy policy = FsyncPolicy.EVERYSEC;
+        private int autoRewritePercentage = 100;
+        private long autoRewriteMinBytes = 64L * 1024 * 1024;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        public Builder setFsyncPolicy(FsyncPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        // 与 Redis auto-aof-rewrite-percentage / auto-aof-rewrite-min-size 相同，minBytes 为0时关闭自动重写
+        public Builder setAutoRewrite(int percentage, long minBytes) {
+            this.autoRewritePercentage = percentage;
+            this.autoRewriteMinBytes = minBytes;
+            return this;
+        }
+
+        public CartAppendOnlyLog open() throws IOException {
+            if (autoRewritePercentage < 0 || autoRewriteMinBytes < 0) {
+                throw new IllegalArgumentException("自动重写参数不能为负");
+            }
+            return new CartAppendOnlyLog(this);
+        }
+    }
+}
+
+// 持久化购物车 - 操作先写日志再修改内存
+class DurableShoppingCart extends ShoppingCart {
+    private final long cartId;
+    private final CartAppendOnlyLog log;
+    private boolean paymentSelected;
+
+    public DurableShoppingCart(long cartId, CartAppendOnlyLog log) {
+        this(cartId, log, 0);
+    }
+
+    private DurableShoppingCart(long cartId, CartAppendOnlyLog log, double totalAmount) {
+        super(totalAmount);
+        this.cartId = cartId;
+        this.log = log;
+    }
+
+    // 按日志恢复出的状态重建所有未结账的购物车
+    public static Map<Long, DurableShoppingCart> recoverAll(CartAppendOnlyLog log) {
+        Map<Long, DurableShoppingCart> carts = new ConcurrentHashMap<>();
+        for (Map.Entry<Long, Double> entry : log.getRecoveredCarts().entrySet()) {
+            carts.put(entry.getKey(), new DurableShoppingCart(entry.getKey(), log, entry.getValue()));
+        }
+        return carts;
+    }
+
+    @Override
+    public void addItem(double price) {
+        log.appendAddItem(cartId, price);
+        super.addItem(price);
+    }
+
+    @Override
+    public void setPaymentStrategy(PaymentStrategy strategy) {
+        super.setPaymentStrategy(strategy);
+        paymentSelected = strategy != null;
+    }
+
+    // 未选择支付方式时结账不生效，也不记录日志
+    // 先把结账记录写入日志并等待落盘，再执行支付：两者之间宕机时购物车恢复为已结账，
+    // 不会被再次结账重复扣款（最多一次）；日志写入失败时抛出异常，不会扣款。
+    // 日志中结账即删除购物车，内存中的金额也随之清零（支付抛异常时同样清零），
+    // 之后再添加商品从0开始累计，与恢复出的状态一致，再次结账也不会重复收取旧的金额
+    @Override
+    public void checkout() {
+        if (!paymentSelected) {
+            super.checkout();
+            return;
+        }
+        log.appendCheckout(cartId);
+        try {
+            super.checkout();
+        } finally {
+            resetTotal();
+        }
+    }
+
+    public long getCartId() {
+        return cartId;
+    }
+}
+
+public class CartAofExample {
+    private static final int THREADS = 8;
+
+    // 多线程并发向各自的购物车添加商品，每个线程结账一部分购物车
+    private static long load(CartAppendOnlyLog log, int opsPerThread) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                List<DurableShoppingCart> carts = new ArrayList<>();
+                for (int c = 0; c < 100; c++) {
+                    carts.add(new DurableShoppingCart(id * 1000L + c, log));
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    DurableShoppingCart cart = carts.get(i % carts.size());
+                    cart.addItem(1 + i % 50);
+                    if (i % 97 == 0) {
+                        cart.setPaymentStrategy(new AlipayStrategy("138****8888"));
+                        cart.checkout();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== 购物车追加日志示例 ===\n");
+        OutputSink previous = ConsoleOutput.setSink(new DirectOutputSink(System.out, OutputLevel.OFF));
+
+        System.out.println("1. 三种刷盘策略 (" + THREADS + " 线程并发写入):");
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            Path dir = Files.createTempDirectory("cart-aof-" + policy.name().toLowerCase());
+            try (CartAppendOnlyLog log = CartAppendOnlyLog.builder(dir).setFsyncPolicy(policy).open()) {
+                int ops = policy == FsyncPolicy.ALWAYS ? 2_000 : 50_000;
+                long nanos = load(log, ops);
+                System.out.printf("%-8s %d 次写入耗时 %.1fms，fsync %d 次%n", policy, log.getAppendCount(),
+                        nanos / 1e6, log.getSyncCount());
+            } finally {
+                deleteDirectory(dir);
+            }
+        }
+
+        System.out.println("\n2. 重写与恢复:");
+        Path dir = Files.createTempDirectory("cart-aof");
+        try {
+            Map<Long, Double> expected;
+            try (CartAppendOnlyLog log = CartAppendOnlyLog.builder(dir).open()) {
+                load(log, 100_000);
+                long before = directorySize(dir);
+                log.rewriteInBackground().join();
+                // 重写之后的写入进入新的增量文件
+                new DurableShoppingCart(1_000_000, log).addItem(9.9);
+                expected = log.getOpenCarts();
+                System.out.printf("重写前日志 %dKB，重写后 %dKB%n", before / 1024, directorySize(dir) / 1024);
+            }
+
+            // 模拟宕机时写了一半的记录
+            Path incr;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "appendonly.incr.*")) {
+                incr = files.iterator().next();
+            }
+            Files.write(incr, new byte[] {CartLogRecord.ADD_ITEM, 1, 2, 3}, StandardOpenOption.APPEND);
+
+            long start = System.nanoTime();
+            try (CartAppendOnlyLog log = CartAppendOnlyLog.builder(dir).open()) {
+                Map<Long, DurableShoppingCart> carts = DurableShoppingCart.recoverAll(log);
+                System.out.printf("恢复 %d 个未结账购物车耗时 %.1fms，与宕机前一致: %b%n", carts.size(),
+                        (System.nanoTime() - start) / 1e6, log.getRecoveredCarts().equals(expected));
+                System.out.println("重写后新建的购物车金额: $" + carts.get(1_000_000L).getTotalAmount());
+            }
+        } finally {
+            deleteDirectory(dir);
+            ConsoleOutput.setSink(previous);
+        }
+    }
+}
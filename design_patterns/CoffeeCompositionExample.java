@@ -0,0 +1,359 @@
+// Coffee Composition Example - 按配料组合缓存装饰好的咖啡，相同组合只解析和构造一次
+// 缓存采用写时复制：读取只访问一个 volatile 快照，不加锁；新组合在锁内复制快照后整体替换
+
+package designpatterns;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+// 配料 - 名称到装饰器的映射，取代 main 中的 switch
+enum CoffeeAddOn {
+    MILK("milk") {
+        @Override
+        Coffee decorate(Coffee coffee) {
+            return new MilkDecorator(coffee);
+        }
+    },
+    SUGAR("sugar") {
+        @Override
+        Coffee decorate(Coffee coffee) {
+            return new SugarDecorator(coffee);
+        }
+    },
+    CHOCOLATE("chocolate") {
+        @Override
+        Coffee decorate(Coffee coffee) {
+            return new ChocolateDecorator(coffee);
+        }
+    };
+
+    private static final CoffeeAddOn[] VALUES = values();
+
+    private final String code;
+
+    CoffeeAddOn(String code) {
+        this.code = code;
+    }
+
+    abstract Coffee decorate(Coffee coffee);
+
+    public String getCode() {
+        return code;
+    }
+
+    public static CoffeeAddOn parse(String code) {
+        // values() 每次返回新数组，解析在缓存命中路径上，使用缓存的副本
+        for (CoffeeAddOn addOn : VALUES) {
+            if (addOn.code.equals(code)) {
+                return addOn;
+            }
+        }
+        throw new IllegalArgumentException("未知的配料: " + code);
+    }
+}
+
+// 组合结果 - 装饰链构造完成后把描述和价格固定下来，不可变，可在线程间共享
+final class ComposedCoffee implements Coffee {
+    private final List<String> addOns;
+    private final String description;
+    private final double cost;
+
+    ComposedCoffee(List<String> addOns, Coffee decorated) {
+        this.addOns = addOns;
+        this.description = decorated.getDescription();
+        this.cost = decorated.getCost();
+    }
+
+    public List<String> getAddOns() {
+        return addOns;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        return description + " - 价格: $" + cost;
+    }
+}
+
+// 咖啡组合服务 - 配料顺序影响描述，因此按原始顺序作为缓存键
+// 缓存容量有限，超出时按 CLOCK（二次机会）淘汰：读取只设置引用标记，淘汰时跳过最近被读过的组合
+// 命中路径不分配对象：配料序列编码成一个 long，在开放寻址的只读表中查找
+class CoffeeCompositionService {
+    private static final int DEFAULT_MAX_SIZE = 256;
+    // 每个配料占 2 位（序号+1，不为0，所以不同长度的序列编码不会相同），long 最多容纳 31 个
+    private static final int KEY_BITS = 2;
+    private static final int MAX_KEY_ADD_ONS = 63 / KEY_BITS;
+
+    private static final class Entry {
+        final Coffee coffee;
+        // 非 volatile：丢失一次标记只会让淘汰略不精确，换来读路径没有写屏障
+        boolean referenced;
+
+        Entry(Coffee coffee) {
+            this.coffee = coffee;
+        }
+    }
+
+    // 不可变快照：order 保持插入顺序供 CLOCK 淘汰（只在锁内使用），keys/entries 供无锁读取
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new LinkedHashMap<>());
+
+        final LinkedHashMap<Long, Entry> order;
+        final long[] keys;
+        final Entry[] entries;
+        final int mask;
+
+        Snapshot(LinkedHashMap<Long, Entry> order) {
+            this.order = order;
+            int capacity = Integer.highestOneBit(Math.max(4, order.size() * 2) - 1) << 1;
+            this.keys = new long[capacity];
+            this.entries = new Entry[capacity];
+            this.mask = capacity - 1;
+            for (Map.Entry<Long, Entry> e : order.entrySet()) {
+                long key = e.getKey();
+                int i = slot(key);
+                while (entries[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                entries[i] = e.getValue();
+            }
+        }
+
+        Entry get(long key) {
+            for (int i = slot(key); entries[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return entries[i];
+                }
+            }
+            return null;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    static {
+        if (CoffeeAddOn.values().length >= 1 << KEY_BITS) {
+            throw new IllegalStateException("配料种类超出缓存键编码范围");
+        }
+    }
+
+    private final Coffee base;
+    private final int maxSize;
+    private final LongAdder compositions = new LongAdder();
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public CoffeeCompositionService() {
+        this(new SimpleCoffee(), DEFAULT_MAX_SIZE);
+    }
+
+    public CoffeeCompositionService(Coffee base, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0: " + maxSize);
+        }
+        this.base = base;
+        this.maxSize = maxSize;
+    }
+
+    public Coffee compose(String... addOns) {
+        long key = 0;
+        if (addOns.length <= MAX_KEY_ADD_ONS) {
+            for (String code : addOns) {
+                key = (key << KEY_BITS) | (CoffeeAddOn.parse(code).ordinal() + 1);
+            }
+        }
+        Coffee cached = lookup(key, addOns.length);
+        return cached != null ? cached : miss(key, addOns.length, List.of(addOns));
+    }
+
+    public Coffee compose(List<String> addOns) {
+        int n = addOns.size();
+        long key = 0;
+        if (n <= MAX_KEY_ADD_ONS) {
+            // 按下标访问，避免创建迭代器
+            for (int i = 0; i < n; i++) {
+                key = (key << KEY_BITS) | (CoffeeAddOn.parse(addOns.get(i)).ordinal() + 1);
+            }
+        }
+        Coffee cached = lookup(key, n);
+        return cached != null ? cached : miss(key, n, addOns);
+    }
+
+    private Coffee lookup(long key, int length) {
+        if (length > MAX_KEY_ADD_ONS) {
+            return null;
+        }
+        Entry entry = snapshot.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.coffee;
+    }
+
+    private Coffee miss(long key, int length, List<String> addOns) {
+        Coffee coffee = build(List.copyOf(addOns));
+        // 超长组合很少见，不缓存
+        return length > MAX_KEY_ADD_ONS ? coffee : insert(key, coffee);
+    }
+
+    // 在锁外解析并构造，并发的相同未命中可能重复构造，但只有一个结果会被缓存
+    private Coffee build(List<String> addOns) {
+        Coffee coffee = base;
+        for (String code : addOns) {
+            coffee = CoffeeAddOn.parse(code).decorate(coffee);
+        }
+        compositions.increment();
+        return new ComposedCoffee(addOns, coffee);
+    }
+
+    private Coffee insert(long key, Coffee coffee) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            Entry existing = current.get(key);
+            if (existing != null) {
+                return existing.coffee;
+            }
+            LinkedHashMap<Long, Entry> next = new LinkedHashMap<>(current.order);
+            // 先腾出位置再放入新组合：新组合没有引用标记，若参与扫描，在缓存满且全部被读过时
+            // 旧组合清除标记后会排到它后面，被淘汰的反而是刚放入的组合
+            while (next.size() >= maxSize) {
+                Iterator<Map.Entry<Long, Entry>> it = next.entrySet().iterator();
+                Map.Entry<Long, Entry> oldest = it.next();
+                it.remove();
+                if (oldest.getValue().referenced) {
+                    // 二次机会：清除标记后移到队尾
+                    oldest.getValue().referenced = false;
+                    next.put(oldest.getKey(), oldest.getValue());
+                }
+            }
+            next.put(key, new Entry(coffee));
+            snapshot = new Snapshot(next);
+            return coffee;
+        }
+    }
+
+    public int size() {
+        return snapshot.order.size();
+    }
+
+    // 实际执行解析与装饰的次数
+    public long compositionCount() {
+        return compositions.sum();
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            snapshot = Snapshot.EMPTY;
+        }
+    }
+}
+
+public class CoffeeCompositionExample {
+    private static final String[] CODES = {"milk", "sugar", "chocolate"};
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== 咖啡组合缓存示例 ===\n");
+
+        CoffeeCompositionService service = new CoffeeCompositionService();
+        Coffee first = service.compose("milk", "sugar", "chocolate");
+        Coffee second = service.compose("milk", "sugar", "chocolate");
+        System.out.println(first);
+        System.out.println("同一组合返回同一实例: " + (first == second));
+        System.out.println("顺序不同是不同组合: " + service.compose("chocolate", "milk"));
+
+        try {
+            service.compose("milk", "honey");
+        } catch (IllegalArgumentException e) {
+            System.out.println("错误: " + e.getMessage());
+        }
+
+        // 缓存已满且每个组合都被读过时，新组合仍能进入缓存
+        CoffeeCompositionService small = new CoffeeCompositionService(new SimpleCoffee(), 2);
+        small.compose("milk");
+        small.compose("sugar");
+        small.compose("milk");
+        small.compose("sugar");
+        Coffee mocha = small.compose("chocolate");
+        System.out.println("满缓存中的新组合被缓存: " + (small.compose("chocolate") == mocha)
+                + ", 缓存组合数: " + small.size());
+
+        System.out.println("\n订单流程性能对比 (100万个订单，组合随机):");
+        int orders = 1_000_000;
+        Random random = new Random(42);
+        String[][] requests = new String[orders][];
+        for (int i = 0; i < orders; i++) {
+            String[] addOns = new String[random.nextInt(4)];
+            for (int j = 0; j < addOns.length; j++) {
+                addOns[j] = CODES[random.nextInt(CODES.length)];
+            }
+            requests[i] = addOns;
+        }
+
+        for (int round = 0; round < 3; round++) {
+            double total = 0;
+            long start = System.nanoTime();
+            for (String[] addOns : requests) {
+                Coffee coffee = new SimpleCoffee();
+                for (String code : addOns) {
+                    coffee = CoffeeAddOn.parse(code).decorate(coffee);
+                }
+                total += coffee.getCost();
+                total += coffee.getDescription().length();
+            }
+            long rebuildNanos = System.nanoTime() - start;
+
+            CoffeeCompositionService cached = new CoffeeCompositionService();
+            double cachedTotal = 0;
+            start = System.nanoTime();
+            for (String[] addOns : requests) {
+                Coffee coffee = cached.compose(addOns);
+                cachedTotal += coffee.getCost();
+                cachedTotal += coffee.getDescription().length();
+            }
+            long cachedNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.printf("每单重建装饰链: %.1fms%n", rebuildNanos / 1e6);
+                System.out.printf("组合缓存: %.1fms, 不同组合 %d 个, 实际构造 %d 次, 结果一致: %b%n",
+                        cachedNanos / 1e6, cached.size(), cached.compositionCount(), total == cachedTotal);
+            }
+        }
+
+        System.out.println("\n多线程并发读取:");
+        CoffeeCompositionService shared = new CoffeeCompositionService(new SimpleCoffee(), 64);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < orders; i += threads.length) {
+                    shared.compose(requests[i]);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println("缓存组合数: " + shared.size() + ", 实际构造 " + shared.compositionCount() + " 次");
+    }
+}
@@ -0,0 +1,279 @@
+// Columnar Pricing Example - 按列存储订单（基础咖啡、配料位掩码、数量），批量计算价格
+// 逐单遍历装饰链是指针追逐加标量运算；按列存储后价格计算是几个紧凑的数组循环
+// JDK 17 的 Vector API 仍在孵化模块中，需要额外的编译和启动参数，这里写成 C2 能自动向量化的标量循环
+
+package designpatterns;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// 价格表 - 以分为单位，预先展开为 (基础咖啡, 配料组合) -> 单价，定价时只需一次查表
+final class CoffeePriceTable {
+    static final int ADD_ON_COUNT = CoffeeAddOn.values().length;
+    static final int MASK_COUNT = 1 << ADD_ON_COUNT;
+
+    // 零价基础咖啡，用于从装饰器中读出配料单价
+    private static final Coffee ZERO = new Coffee() {
+        @Override
+        public String getDescription() {
+            return "";
+        }
+
+        @Override
+        public double getCost() {
+            return 0;
+        }
+    };
+
+    private final int[] baseCents;
+    private final int[] addOnCents;
+    private final int[] unitCents;
+
+    private CoffeePriceTable(int[] baseCents, int[] addOnCents) {
+        this.baseCents = baseCents;
+        this.addOnCents = addOnCents;
+        this.unitCents = new int[baseCents.length * MASK_COUNT];
+        for (int base = 0; base < baseCents.length; base++) {
+            for (int mask = 0; mask < MASK_COUNT; mask++) {
+                int cents = baseCents[base];
+                for (int bit = 0; bit < ADD_ON_COUNT; bit++) {
+                    if ((mask & (1 << bit)) != 0) {
+                        cents += addOnCents[bit];
+                    }
+                }
+                unitCents[base * MASK_COUNT + mask] = cents;
+            }
+        }
+    }
+
+    // 基础咖啡的下标即订单中的 baseId，配料价格取自现有装饰器
+    public static CoffeePriceTable of(Coffee... bases) {
+        int[] baseCents = new int[bases.length];
+        for (int i = 0; i < bases.length; i++) {
+            baseCents[i] = toCents(bases[i].getCost());
+        }
+        int[] addOnCents = new int[ADD_ON_COUNT];
+        for (CoffeeAddOn addOn : CoffeeAddOn.values()) {
+            addOnCents[addOn.ordinal()] = toCents(addOn.decorate(ZERO).getCost());
+        }
+        return new CoffeePriceTable(baseCents, addOnCents);
+    }
+
+    // 调价：返回新价格表，原表不变，可与正在进行的定价并发使用
+    public CoffeePriceTable withBasePrice(int baseId, double price) {
+        int[] cents = baseCents.clone();
+        cents[baseId] = toCents(price);
+        return new CoffeePriceTable(cents, addOnCents);
+    }
+
+    public CoffeePriceTable withAddOnPrice(CoffeeAddOn addOn, double price) {
+        int[] cents = addOnCents.clone();
+        cents[addOn.ordinal()] = toCents(price);
+        return new CoffeePriceTable(baseCents, cents);
+    }
+
+    static int toCents(double price) {
+        return Math.toIntExact(Math.round(price * 100));
+    }
+
+    public int baseCount() {
+        return baseCents.length;
+    }
+
+    public int unitCents(int baseId, int mask) {
+        return unitCents[baseId * MASK_COUNT + mask];
+    }
+
+    int[] unitTable() {
+        return unitCents;
+    }
+}
+
+// 按列存储的订单批次
+final class CoffeeOrderBatch {
+    private int[] baseIds;
+    private byte[] masks;
+    private int[] quantities;
+    private int size;
+    private int maxBaseId = -1;
+
+    public CoffeeOrderBatch(int initialCapacity) {
+        baseIds = new int[initialCapacity];
+        masks = new byte[initialCapacity];
+        quantities = new int[initialCapacity];
+    }
+
+    public static int mask(CoffeeAddOn... addOns) {
+        int mask = 0;
+        for (CoffeeAddOn addOn : addOns) {
+            mask |= 1 << addOn.ordinal();
+        }
+        return mask;
+    }
+
+    public void add(int baseId, int mask, int quantity) {
+        if (baseId < 0 || mask < 0 || mask >= CoffeePriceTable.MASK_COUNT || quantity < 0) {
+            throw new IllegalArgumentException("无效的订单: base=" + baseId + ", mask=" + mask + ", quantity=" + quantity);
+        }
+        if (size == baseIds.length) {
+            int capacity = Math.max(16, size * 2);
+            baseIds = Arrays.copyOf(baseIds, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        baseIds[size] = baseId;
+        masks[size] = (byte) mask;
+        quantities[size] = quantity;
+        maxBaseId = Math.max(maxBaseId, baseId);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        maxBaseId = -1;
+    }
+
+    int[] baseIds() {
+        return baseIds;
+    }
+
+    byte[] masks() {
+        return masks;
+    }
+
+    int[] quantities() {
+        return quantities;
+    }
+
+    int maxBaseId() {
+        return maxBaseId;
+    }
+}
+
+// 批量定价引擎 - 按块处理，块内的中间数组常驻 L1/L2 缓存
+class BulkPricingEngine {
+    private static final int CHUNK = 4096;
+    // 块内单价数组按线程复用（包括并行版本的工作线程），热路径不分配
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[CHUNK]);
+
+    // 计算每单金额（分）写入 totals，返回总金额（分）
+    // 单价乘数量可能超出 int，每单金额用 long 保存
+    public long priceAll(CoffeeOrderBatch batch, CoffeePriceTable table, long[] totals) {
+        check(batch, table, totals);
+        int[] scratch = SCRATCH.get();
+        long sum = 0;
+        for (int from = 0; from < batch.size(); from += CHUNK) {
+            sum += priceChunk(batch, table, totals, scratch, from, Math.min(from + CHUNK, batch.size()));
+        }
+        return sum;
+    }
+
+    // 多核版本：各块互不依赖，由公共 ForkJoinPool 并行处理
+    public long priceAllParallel(CoffeeOrderBatch batch, CoffeePriceTable table, long[] totals) {
+        check(batch, table, totals);
+        int chunks = (batch.size() + CHUNK - 1) / CHUNK;
+        return IntStream.range(0, chunks).parallel().mapToLong(c -> {
+            int from = c * CHUNK;
+            return priceChunk(batch, table, totals, SCRATCH.get(), from, Math.min(from + CHUNK, batch.size()));
+        }).sum();
+    }
+
+    private static void check(CoffeeOrderBatch batch, CoffeePriceTable table, long[] totals) {
+        if (batch.maxBaseId() >= table.baseCount()) {
+            throw new IllegalArgumentException("价格表中没有基础咖啡: " + batch.maxBaseId());
+        }
+        if (totals.length < batch.size()) {
+            throw new IllegalArgumentException("结果数组长度不足: " + totals.length + " < " + batch.size());
+        }
+    }
+
+    private static long priceChunk(CoffeeOrderBatch batch, CoffeePriceTable table, long[] totals,
+                                   int[] unit, int from, int to) {
+        int[] baseIds = batch.baseIds();
+        byte[] masks = batch.masks();
+        int[] quantities = batch.quantities();
+        int[] unitTable = table.unitTable();
+        int n = to - from;
+        // 1. 查表得到单价：间接寻址，无法向量化，但每单只有一次访问且表只有几百字节
+        for (int i = 0; i < n; i++) {
+            // 掩码按无符号字节读取，避免 0x80 以上的掩码符号扩展成负下标
+            unit[i] = unitTable[baseIds[from + i] * CoffeePriceTable.MASK_COUNT + (masks[from + i] & 0xFF)];
+        }
+        // 2. 单价乘数量：连续数组上的同构运算，C2 会生成 SIMD 指令
+        for (int i = 0; i < n; i++) {
+            totals[from + i] = (long) unit[i] * quantities[from + i];
+        }
+        // 3. 求和
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += totals[from + i];
+        }
+        return sum;
+    }
+}
+
+public class ColumnarPricingExample {
+    public static void main(String[] args) {
+        System.out.println("=== 按列批量定价示例 ===\n");
+
+        CoffeePriceTable table = CoffeePriceTable.of(new SimpleCoffee());
+        CoffeeOrderBatch cart = new CoffeeOrderBatch(4);
+        cart.add(0, CoffeeOrderBatch.mask(CoffeeAddOn.MILK), 2);
+        cart.add(0, CoffeeOrderBatch.mask(CoffeeAddOn.MILK, CoffeeAddOn.SUGAR, CoffeeAddOn.CHOCOLATE), 1);
+        BulkPricingEngine engine = new BulkPricingEngine();
+        long[] lineTotals = new long[cart.size()];
+        long cents = engine.priceAll(cart, table, lineTotals);
+        System.out.println("每行金额(分): " + Arrays.toString(lineTotals));
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.addItem(cents / 100.0);
+
+        System.out.println("\n日终调价 (500万个订单):");
+        int n = 5_000_000;
+        Random random = new Random(42);
+        CoffeeOrderBatch orders = new CoffeeOrderBatch(n);
+        for (int i = 0; i < n; i++) {
+            orders.add(0, random.nextInt(CoffeePriceTable.MASK_COUNT), 1 + random.nextInt(5));
+        }
+        CoffeeAddOn[] addOns = CoffeeAddOn.values();
+        long[] totals = new long[n];
+        CoffeePriceTable repriced = table.withAddOnPrice(CoffeeAddOn.MILK, 0.6);
+
+        for (int round = 0; round < 3; round++) {
+            // 逐单构造装饰链
+            long start = System.nanoTime();
+            long chainCents = 0;
+            for (int i = 0; i < n; i++) {
+                Coffee coffee = new SimpleCoffee();
+                int mask = orders.masks()[i] & 0xFF;
+                for (CoffeeAddOn addOn : addOns) {
+                    if ((mask & (1 << addOn.ordinal())) != 0) {
+                        coffee = addOn.decorate(coffee);
+                    }
+                }
+                chainCents += (long) CoffeePriceTable.toCents(coffee.getCost()) * orders.quantities()[i];
+            }
+            long chainNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long columnarCents = engine.priceAll(orders, table, totals);
+            long columnarNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long parallelCents = engine.priceAllParallel(orders, repriced, totals);
+            long parallelNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.printf("逐单装饰链: %.1fms, 合计 $%.2f%n", chainNanos / 1e6, chainCents / 100.0);
+                System.out.printf("按列批量定价: %.1fms, 合计 $%.2f (一致: %b)%n",
+                        columnarNanos / 1e6, columnarCents / 100.0, chainCents == columnarCents);
+                System.out.printf("调价后并行重算: %.1fms, 合计 $%.2f%n", parallelNanos / 1e6, parallelCents / 100.0);
+            }
+        }
+    }
+}
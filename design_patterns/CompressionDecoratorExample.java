@@ -0,0 +1,772 @@
+// Compression Decorator Example - 可插拔的分块压缩流装饰器
+// 与 StreamDecoratorExample 一样可以层层包装: DataOutputStream -> BlockCompressedOutputStream -> FileOutputStream
+
+package designpatterns;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// 压缩算法接口 - 每个块独立压缩，互不依赖
+interface BlockCodec {
+    byte getId();
+
+    String getName();
+
+    int maxCompressedLength(int rawLength);
+
+    // 返回压缩后的字节数
+    int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff);
+
+    void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength) throws IOException;
+}
+
+// 基于 JDK Deflater 的实现 - 压缩率高，速度一般
+class DeflateBlockCodec implements BlockCodec {
+    private final int level;
+
+    public DeflateBlockCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
+    @Override
+    public String getName() {
+        return "deflate";
+    }
+
+    @Override
+    public int maxCompressedLength(int rawLength) {
+        return rawLength + (rawLength >> 12) + (rawLength >> 14) + (rawLength >> 25) + 13 + 6;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(src, srcOff, srcLen);
+            deflater.finish();
+            int written = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(dst, dstOff + written, dst.length - dstOff - written);
+                if (n == 0 && dstOff + written == dst.length) {
+                    break;
+                }
+                written += n;
+            }
+            return written;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength)
+            throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(src, srcOff, srcLen);
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(dst, dstOff + read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("deflate 块长度不符: 期望 " + rawLength + "，实际 " + read);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("deflate 块数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
+
+// LZ4 风格的纯 Java 实现 - 哈希查找4字节匹配，速度快，压缩率中等
+// 序列格式: [token][额外字面量长度][字面量][offset:2字节][额外匹配长度]
+class FastLzBlockCodec implements BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_BITS = 14;
+    private static final int MAX_OFFSET = 0xFFFF;
+    // 末尾若干字节只作为字面量输出，简化边界判断
+    private static final int TAIL_LITERALS = 5;
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    @Override
+    public String getName() {
+        return "fastlz";
+    }
+
+    @Override
+    public int maxCompressedLength(int rawLength) {
+        return rawLength + rawLength / 255 + 16;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        int[] table = new int[1 << HASH_BITS];
+        int end = srcOff + srcLen;
+        int matchLimit = end - TAIL_LITERALS;
+        int anchor = srcOff;
+        int ip = srcOff;
+        int op = dstOff;
+
+        while (ip + MIN_MATCH <= matchLimit) {
+            int sequence = readInt(src, ip);
+            int hash = hash(sequence);
+            // table 中存 位置+1，0 表示空槽
+            int candidate = table[hash] - 1;
+            table[hash] = ip + 1;
+            if (candidate < srcOff || ip - candidate > MAX_OFFSET || readInt(src, candidate) != sequence) {
+                ip++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < matchLimit && src[candidate + matchLength] == src[ip + matchLength]) {
+                matchLength++;
+            }
+
+            int literalLength = ip - anchor;
+            int extraMatch = matchLength - MIN_MATCH;
+            dst[op++] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(extraMatch, 15));
+            op = writeLiterals(src, anchor, literalLength, dst, op);
+            dst[op++] = (byte) (ip - candidate);
+            dst[op++] = (byte) ((ip - candidate) >>> 8);
+            if (extraMatch >= 15) {
+                op = writeLengthBytes(dst, op, extraMatch - 15);
+            }
+
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        // 最后一段全部是字面量，没有 offset
+        int literalLength = end - anchor;
+        dst[op++] = (byte) (Math.min(literalLength, 15) << 4);
+        op = writeLiterals(src, anchor, literalLength, dst, op);
+        return op - dstOff;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength)
+            throws IOException {
+        int ip = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int op = dstOff;
+        int dstEnd = dstOff + rawLength;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip >= srcEnd) {
+                    break;
+                }
+
+                int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+                ip += 2;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                int from = op - offset;
+                if (offset == 0 || from < dstOff || op + matchLength > dstEnd) {
+                    throw new IOException("fastlz 块数据损坏");
+                }
+                // 匹配区可能与输出区重叠，必须逐字节复制
+                for (int i = 0; i < matchLength; i++) {
+                    dst[op++] = dst[from + i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("fastlz 块数据损坏", e);
+        }
+        if (op != dstEnd) {
+            throw new IOException("fastlz 块长度不符: 期望 " + rawLength + "，实际 " + (op - dstOff));
+        }
+    }
+
+    private static int writeLiterals(byte[] src, int literalStart, int literalLength, byte[] dst, int op) {
+        if (literalLength >= 15) {
+            op = writeLengthBytes(dst, op, literalLength - 15);
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    private static int writeLengthBytes(byte[] dst, int op, int remaining) {
+        while (remaining >= 255) {
+            dst[op++] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_BITS);
+    }
+}
+
+// 不压缩，用于对比或已压缩数据
+class NoneBlockCodec implements BlockCodec {
+    @Override
+    public byte getId() {
+        return 0;
+    }
+
+    @Override
+    public String getName() {
+        return "none";
+    }
+
+    @Override
+    public int maxCompressedLength(int rawLength) {
+        return rawLength;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        System.arraycopy(src, srcOff, dst, dstOff, srcLen);
+        return srcLen;
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int rawLength) {
+        System.arraycopy(src, srcOff, dst, dstOff, rawLength);
+    }
+}
+
+// 压缩算法注册表 - 读取方根据帧头中的 id 选择解码器
+final class BlockCodecs {
+    private BlockCodecs() {
+    }
+
+    public static BlockCodec forId(byte id) throws IOException {
+        switch (id) {
+            case 0:
+                return new NoneBlockCodec();
+            case 1:
+                return new DeflateBlockCodec(Deflater.DEFAULT_COMPRESSION);
+            case 2:
+                return new FastLzBlockCodec();
+            default:
+                throw new IOException("未知压缩算法 id: " + id);
+        }
+    }
+}
+
+// 帧格式:
+//   帧头:   [magic:int][codecId:byte][blockSize:int]
+//   数据块: [rawLength:int][storedLength:int][crc32:int][数据]，storedLength == rawLength 表示未压缩
+//   结束块: rawLength == 0
+//   块索引: [blockCount:int] + blockCount * [fileOffset:long][rawOffset:long]
+//   尾部:   [indexOffset:long][magic:int]
+final class BlockFrameFormat {
+    static final int MAGIC = 0x424C4B31; // "BLK1"
+    static final int FRAME_HEADER_SIZE = 9;
+    static final int BLOCK_HEADER_SIZE = 12;
+    static final int TRAILER_SIZE = 12;
+
+    private BlockFrameFormat() {
+    }
+
+    static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    static int readInt(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+}
+
+// 压缩输出装饰器 - 攒满一个块后独立压缩写出
+class BlockCompressedOutputStream extends FilterOutputStream {
+    private final BlockCodec codec;
+    private final byte[] block;
+    private final byte[] compressed;
+    private final byte[] header = new byte[BlockFrameFormat.BLOCK_HEADER_SIZE];
+    private final CRC32 crc = new CRC32();
+    private final List<long[]> index = new ArrayList<>();
+    private int count;
+    private long fileOffset;
+    private long rawOffset;
+    private boolean closed;
+
+    public BlockCompressedOutputStream(OutputStream out, BlockCodec codec, int blockSize) throws IOException {
+        super(out);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize 必须大于0: " + blockSize);
+        }
+        this.codec = codec;
+        this.block = new byte[blockSize];
+        this.compressed = new byte[codec.maxCompressedLength(blockSize)];
+
+        DataOutputStream frame = new DataOutputStream(out);
+        frame.writeInt(BlockFrameFormat.MAGIC);
+        frame.writeByte(codec.getId());
+        frame.writeInt(blockSize);
+        this.fileOffset = BlockFrameFormat.FRAME_HEADER_SIZE;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            writeBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == block.length) {
+                writeBlock();
+            }
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    // flush 只刷新下游，不强制切块，避免 DataOutputStream 等上层频繁 flush 产生碎块
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        crc.reset();
+        crc.update(block, 0, count);
+        int storedLength = codec.compress(block, 0, count, compressed, 0);
+        byte[] payload = compressed;
+        if (storedLength >= count) {
+            // 压缩无收益时原样存储
+            payload = block;
+            storedLength = count;
+        }
+        BlockFrameFormat.writeInt(header, 0, count);
+        BlockFrameFormat.writeInt(header, 4, storedLength);
+        BlockFrameFormat.writeInt(header, 8, (int) crc.getValue());
+        out.write(header);
+        out.write(payload, 0, storedLength);
+
+        index.add(new long[] {fileOffset, rawOffset});
+        fileOffset += BlockFrameFormat.BLOCK_HEADER_SIZE + storedLength;
+        rawOffset += count;
+        count = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            DataOutputStream frame = new DataOutputStream(out);
+            frame.writeInt(0);
+            frame.writeInt(0);
+            frame.writeInt(0);
+            long indexOffset = fileOffset + BlockFrameFormat.BLOCK_HEADER_SIZE;
+            frame.writeInt(index.size());
+            for (long[] entry : index) {
+                frame.writeLong(entry[0]);
+                frame.writeLong(entry[1]);
+            }
+            frame.writeLong(indexOffset);
+            frame.writeInt(BlockFrameFormat.MAGIC);
+            frame.flush();
+        } finally {
+            out.close();
+        }
+    }
+}
+
+// 压缩输入装饰器 - 顺序逐块解压，遇到结束块即返回 EOF
+class BlockCompressedInputStream extends FilterInputStream {
+    private final BlockCodec codec;
+    private final DataInputStream frame;
+    private final byte[] block;
+    private byte[] stored;
+    private final CRC32 crc = new CRC32();
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    public BlockCompressedInputStream(InputStream in) throws IOException {
+        super(in);
+        this.frame = new DataInputStream(in);
+        if (frame.readInt() != BlockFrameFormat.MAGIC) {
+            throw new IOException("不是分块压缩流");
+        }
+        this.codec = BlockCodecs.forId(frame.readByte());
+        int blockSize = frame.readInt();
+        this.block = new byte[blockSize];
+        this.stored = new byte[codec.maxCompressedLength(blockSize)];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (position == limit && !nextBlock()) {
+                break;
+            }
+            int step = (int) Math.min(n - skipped, limit - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int rawLength = frame.readInt();
+        int storedLength = frame.readInt();
+        int checksum = frame.readInt();
+        if (rawLength == 0) {
+            eof = true;
+            return false;
+        }
+        if (rawLength < 0 || storedLength < 0 || rawLength > block.length || storedLength > stored.length) {
+            throw new IOException("块长度非法: raw=" + rawLength + ", stored=" + storedLength);
+        }
+        frame.readFully(stored, 0, storedLength);
+        BlockFrameDecoder.decode(codec, stored, storedLength, block, rawLength, checksum, crc);
+        position = 0;
+        limit = rawLength;
+        return true;
+    }
+}
+
+// 单块解码逻辑，顺序流与随机访问读取器共用
+final class BlockFrameDecoder {
+    private BlockFrameDecoder() {
+    }
+
+    static void decode(BlockCodec codec, byte[] stored, int storedLength, byte[] raw, int rawLength,
+                       int checksum, CRC32 crc) throws IOException {
+        if (storedLength == rawLength) {
+            System.arraycopy(stored, 0, raw, 0, rawLength);
+        } else {
+            codec.decompress(stored, 0, storedLength, raw, 0, rawLength);
+        }
+        crc.reset();
+        crc.update(raw, 0, rawLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("块校验和不匹配");
+        }
+    }
+}
+
+// 随机访问读取器 - 读取尾部块索引，可定位到任意块并行解压
+class BlockCompressedFile implements Closeable {
+    private final FileChannel channel;
+    private final BlockCodec codec;
+    private final int blockSize;
+    private final long[] fileOffsets;
+    private final long[] rawOffsets;
+    private final long rawLength;
+
+    public BlockCompressedFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer frameHeader = readAt(0, BlockFrameFormat.FRAME_HEADER_SIZE);
+            if (frameHeader.getInt() != BlockFrameFormat.MAGIC) {
+                throw new IOException("不是分块压缩文件: " + path);
+            }
+            this.codec = BlockCodecs.forId(frameHeader.get());
+            this.blockSize = frameHeader.getInt();
+
+            long size = channel.size();
+            if (size < BlockFrameFormat.FRAME_HEADER_SIZE + BlockFrameFormat.TRAILER_SIZE) {
+                throw new IOException("文件过短，可能未正常关闭: " + path);
+            }
+            ByteBuffer trailer = readAt(size - BlockFrameFormat.TRAILER_SIZE, BlockFrameFormat.TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != BlockFrameFormat.MAGIC) {
+                throw new IOException("文件缺少块索引，可能未正常关闭: " + path);
+            }
+            // 索引位于最后一个块之后、尾部之前：块数(4) + 每块 文件偏移(8) + 原始偏移(8)
+            long indexEnd = size - BlockFrameFormat.TRAILER_SIZE;
+            if (indexOffset < BlockFrameFormat.FRAME_HEADER_SIZE || indexOffset > indexEnd - 4) {
+                throw new IOException("块索引位置非法: " + indexOffset);
+            }
+            int blockCount = readAt(indexOffset, 4).getInt();
+            if (blockCount < 0 || (long) blockCount * 16 != indexEnd - indexOffset - 4) {
+                throw new IOException("块索引损坏: 块数 " + blockCount);
+            }
+            ByteBuffer entries = readAt(indexOffset + 4, blockCount * 16);
+            this.fileOffsets = new long[blockCount];
+            this.rawOffsets = new long[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                fileOffsets[i] = entries.getLong();
+                rawOffsets[i] = entries.getLong();
+                if (fileOffsets[i] < BlockFrameFormat.FRAME_HEADER_SIZE
+                        || fileOffsets[i] > indexOffset - BlockFrameFormat.BLOCK_HEADER_SIZE
+                        || rawOffsets[i] < 0 || (i > 0 && rawOffsets[i] < rawOffsets[i - 1])) {
+                    throw new IOException("块索引损坏: 第 " + i + " 块");
+                }
+            }
+            if (blockCount == 0) {
+                this.rawLength = 0;
+            } else {
+                int lastRaw = readAt(fileOffsets[blockCount - 1], 4).getInt();
+                if (lastRaw < 0 || lastRaw > blockSize) {
+                    throw new IOException("块长度非法: raw=" + lastRaw);
+                }
+                this.rawLength = rawOffsets[blockCount - 1] + lastRaw;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getBlockCount() {
+        return fileOffsets.length;
+    }
+
+    public long getRawLength() {
+        return rawLength;
+    }
+
+    public String getCodecName() {
+        return codec.getName();
+    }
+
+    // 找到包含原始偏移量 rawOffset 的块号
+    public int blockFor(long rawOffset) {
+        if (rawOffset < 0 || rawOffset >= rawLength) {
+            throw new IndexOutOfBoundsException("偏移量越界: " + rawOffset);
+        }
+        int low = 0;
+        int high = rawOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (rawOffsets[mid] <= rawOffset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public long getRawOffset(int blockIndex) {
+        return rawOffsets[blockIndex];
+    }
+
+    // 基于位置读取，多个线程可同时调用
+    public byte[] readBlock(int blockIndex) throws IOException {
+        ByteBuffer header = readAt(fileOffsets[blockIndex], BlockFrameFormat.BLOCK_HEADER_SIZE);
+        int rawLength = header.getInt();
+        int storedLength = header.getInt();
+        int checksum = header.getInt();
+        if (rawLength < 0 || storedLength < 0
+                || rawLength > blockSize || storedLength > codec.maxCompressedLength(blockSize)) {
+            throw new IOException("块长度非法: raw=" + rawLength + ", stored=" + storedLength);
+        }
+        ByteBuffer payload = readAt(fileOffsets[blockIndex] + BlockFrameFormat.BLOCK_HEADER_SIZE, storedLength);
+        byte[] raw = new byte[rawLength];
+        BlockFrameDecoder.decode(codec, payload.array(), storedLength, raw, rawLength, checksum, new CRC32());
+        return raw;
+    }
+
+    // 所有块并行解压，按原始顺序拼接
+    public byte[] readAll(ExecutorService executor) throws IOException {
+        if (rawLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("原始数据超过2GB，请按块读取");
+        }
+        List<Future<byte[]>> futures = new ArrayList<>(fileOffsets.length);
+        for (int i = 0; i < fileOffsets.length; i++) {
+            final int blockIndex = i;
+            futures.add(executor.submit(() -> readBlock(blockIndex)));
+        }
+        byte[] result = new byte[(int) rawLength];
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                byte[] raw = futures.get(i).get();
+                System.arraycopy(raw, 0, result, (int) rawOffsets[i], raw.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("并行解压被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("并行解压失败", e.getCause());
+        }
+        return result;
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("文件提前结束");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+public class CompressionDecoratorExample {
+    private static final int RECORDS = 500_000;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== 压缩装饰器示例 ===\n");
+
+        BlockCodec[] codecs = {new NoneBlockCodec(), new FastLzBlockCodec(),
+                               new DeflateBlockCodec(Deflater.BEST_SPEED)};
+        Path file = Files.createTempFile("records", ".blk");
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (BlockCodec codec : codecs) {
+                System.out.println("--- 压缩算法: " + codec.getName() + " ---");
+
+                // 在原有装饰器链中插入一层压缩
+                long start = System.nanoTime();
+                try (DataOutputStream dataOut = new DataOutputStream(
+                        new BlockCompressedOutputStream(new FileOutputStream(file.toFile()), codec, 64 * 1024))) {
+                    for (int i = 0; i < RECORDS; i++) {
+                        dataOut.writeInt(i);
+                        dataOut.writeUTF("Hello World " + (i % 100));
+                        dataOut.writeDouble(3.14159);
+                    }
+                }
+                long writeNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long checksum = 0;
+                try (DataInputStream dataIn = new DataInputStream(
+                        new BufferedInputStream(new BlockCompressedInputStream(new FileInputStream(file.toFile()))))) {
+                    for (int i = 0; i < RECORDS; i++) {
+                        checksum += dataIn.readInt();
+                        dataIn.readUTF();
+                        dataIn.readDouble();
+                    }
+                }
+                long readNanos = System.nanoTime() - start;
+
+                try (BlockCompressedFile blocks = new BlockCompressedFile(file)) {
+                    start = System.nanoTime();
+                    byte[] all = blocks.readAll(executor);
+                    long parallelNanos = System.nanoTime() - start;
+
+                    // 直接定位到中间某个块
+                    long middle = blocks.getRawLength() / 2;
+                    int blockIndex = blocks.blockFor(middle);
+                    byte[] block = blocks.readBlock(blockIndex);
+                    boolean same = block[(int) (middle - blocks.getRawOffset(blockIndex))] == all[(int) middle];
+
+                    System.out.printf("原始大小: %d 字节, 压缩后: %d 字节, 压缩比: %.2fx%n",
+                            blocks.getRawLength(), Files.size(file),
+                            (double) blocks.getRawLength() / Files.size(file));
+                    System.out.printf("写入 %.1fms, 顺序读取 %.1fms, 并行解压 %d 块 %.1fms%n",
+                            writeNanos / 1e6, readNanos / 1e6, blocks.getBlockCount(), parallelNanos / 1e6);
+                    System.out.println("随机定位块 #" + blockIndex + " 数据一致: " + same
+                            + ", 校验和: " + checksum);
+                }
+                System.out.println();
+            }
+        } finally {
+            executor.shutdown();
+            Files.deleteIfExists(file);
+        }
+    }
+}
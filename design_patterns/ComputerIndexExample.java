@@ -0,0 +1,518 @@
+// Computer Index Example - 按列存储的 Computer 集合与 (cpu, ram, storage, graphicsCard) 联合索引
+// 字符串按列做字典编码，每行每列只占2字节；联合索引遵循最左前缀原则：
+// 条件必须从 cpu 开始连续命中，遇到第一个范围条件（如“已配置存储”）后，后面的列不再走索引，只在索引范围内过滤
+
+package designpatterns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// 字典编码列 - 0 表示 null（未配置），其余编码按首次出现顺序分配
+final class DictionaryColumn {
+    static final int NULL_CODE = 0;
+    static final int MAX_CODE = 0xFFFF;
+
+    private final String name;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private char[] data = new char[16];
+
+    DictionaryColumn(String name) {
+        this.name = name;
+        values.add(null);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            if (values.size() > MAX_CODE) {
+                throw new IllegalStateException("列 " + name + " 的取值超过 " + MAX_CODE + " 个");
+            }
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    // 查询用：值从未出现过时返回 -1
+    int codeOf(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    String decode(int code) {
+        return values.get(code);
+    }
+
+    void set(int row, int code) {
+        if (row == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[row] = (char) code;
+    }
+
+    int get(int row) {
+        return data[row];
+    }
+
+    int cardinality() {
+        return values.size() - 1;
+    }
+
+    long memoryBytes(int rows) {
+        return (long) rows * Character.BYTES;
+    }
+}
+
+// 查询条件 - 每列可以是不限、等于某值或已配置（非空）
+class ComputerQuery {
+    static final int ANY = 0;
+    static final int EQUALS = 1;
+    static final int PRESENT = 2;
+
+    final int[] kinds = new int[ComputerIndex.COLUMN_COUNT];
+    final String[] values = new String[ComputerIndex.COLUMN_COUNT];
+
+    public ComputerQuery cpu(String cpu) {
+        return where(ComputerIndex.CPU, cpu);
+    }
+
+    public ComputerQuery ram(String ram) {
+        return where(ComputerIndex.RAM, ram);
+    }
+
+    public ComputerQuery storage(String storage) {
+        return where(ComputerIndex.STORAGE, storage);
+    }
+
+    public ComputerQuery hasStorage() {
+        return present(ComputerIndex.STORAGE);
+    }
+
+    public ComputerQuery graphicsCard(String graphicsCard) {
+        return where(ComputerIndex.GRAPHICS_CARD, graphicsCard);
+    }
+
+    public ComputerQuery hasGraphicsCard() {
+        return present(ComputerIndex.GRAPHICS_CARD);
+    }
+
+    public ComputerQuery coolingSystem(String coolingSystem) {
+        return where(ComputerIndex.COOLING_SYSTEM, coolingSystem);
+    }
+
+    public ComputerQuery motherboard(String motherboard) {
+        return where(ComputerIndex.MOTHERBOARD, motherboard);
+    }
+
+    // value 为 null 表示匹配未配置该部件的电脑
+    private ComputerQuery where(int column, String value) {
+        kinds[column] = EQUALS;
+        values[column] = value;
+        return this;
+    }
+
+    private ComputerQuery present(int column) {
+        kinds[column] = PRESENT;
+        values[column] = null;
+        return this;
+    }
+}
+
+// 按列存储的 Computer 集合，非线程安全
+// 索引覆盖前 indexedRows 行，之后追加的行先线性扫描，积累到一定数量后重建索引
+class ComputerIndex {
+    static final int CPU = 0;
+    static final int RAM = 1;
+    static final int STORAGE = 2;
+    static final int GRAPHICS_CARD = 3;
+    static final int COOLING_SYSTEM = 4;
+    static final int MOTHERBOARD = 5;
+    static final int COLUMN_COUNT = 6;
+    // 联合索引的列数，每列在索引键中占16位
+    private static final int INDEX_COLUMNS = 4;
+    private static final int MIN_REBUILD_ROWS = 4096;
+    // 四列编码拼成的键按无符号排列，存储时翻转符号位，使有符号比较与无符号顺序一致
+    private static final long KEY_BIAS = Long.MIN_VALUE;
+
+    private final DictionaryColumn[] columns = {
+            new DictionaryColumn("cpu"), new DictionaryColumn("ram"), new DictionaryColumn("storage"),
+            new DictionaryColumn("graphicsCard"), new DictionaryColumn("coolingSystem"),
+            new DictionaryColumn("motherboard")
+    };
+    private int size;
+
+    // 联合索引：按 (cpu, ram, storage, graphicsCard) 编码拼成的键排序，rows 为对应的行号
+    private long[] keys = new long[0];
+    private int[] rows = new int[0];
+    private int indexedRows;
+
+    public void add(Computer computer) {
+        int row = size;
+        columns[CPU].set(row, columns[CPU].encode(computer.getCpu()));
+        columns[RAM].set(row, columns[RAM].encode(computer.getRam()));
+        columns[STORAGE].set(row, columns[STORAGE].encode(computer.getStorage()));
+        columns[GRAPHICS_CARD].set(row, columns[GRAPHICS_CARD].encode(computer.getGraphicsCard()));
+        columns[COOLING_SYSTEM].set(row, columns[COOLING_SYSTEM].encode(computer.getCoolingSystem()));
+        columns[MOTHERBOARD].set(row, columns[MOTHERBOARD].encode(computer.getMotherboard()));
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 按行号还原 Computer，相同配置共享同一实例
+    public Computer get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("行号越界: " + row + "，共 " + size + " 行");
+        }
+        return new Computer.Builder(value(CPU, row), value(RAM, row))
+                .setStorage(value(STORAGE, row))
+                .setGraphicsCard(value(GRAPHICS_CARD, row))
+                .setCoolingSystem(value(COOLING_SYSTEM, row))
+                .setMotherboard(value(MOTHERBOARD, row))
+                .buildInterned();
+    }
+
+    private String value(int column, int row) {
+        return columns[column].decode(columns[column].get(row));
+    }
+
+    public void rebuildIndex() {
+        long[] newKeys = new long[size];
+        int[] newRows = new int[size];
+        for (int row = 0; row < size; row++) {
+            newKeys[row] = indexKey(row);
+            newRows[row] = row;
+        }
+        PrimitiveSorts.sortByKey(newKeys, newRows, 0, size - 1);
+        keys = newKeys;
+        rows = newRows;
+        indexedRows = size;
+    }
+
+    private long indexKey(int row) {
+        long key = 0;
+        for (int column = 0; column < INDEX_COLUMNS; column++) {
+            key = (key << 16) | columns[column].get(row);
+        }
+        return key ^ KEY_BIAS;
+    }
+
+    private void ensureIndexed() {
+        int tail = size - indexedRows;
+        if (tail >= MIN_REBUILD_ROWS && tail >= indexedRows / 8) {
+            rebuildIndex();
+        }
+    }
+
+    // ---------- 查询 ----------
+
+    public int count(ComputerQuery query) {
+        return execute(query, null);
+    }
+
+    public int[] findRows(ComputerQuery query) {
+        IntList result = new IntList();
+        execute(query, result);
+        return result.toArray();
+    }
+
+    public List<Computer> find(ComputerQuery query) {
+        int[] found = findRows(query);
+        List<Computer> result = new ArrayList<>(found.length);
+        for (int row : found) {
+            result.add(get(row));
+        }
+        return result;
+    }
+
+    // 说明查询会如何执行，与数据库的 EXPLAIN 类似
+    public String explain(ComputerQuery query) {
+        Plan plan = plan(query);
+        if (plan == null) {
+            return "结果为空：条件中的值不存在";
+        }
+        if (plan.usedColumns == 0) {
+            return "全表扫描：条件不包含索引最左列 cpu";
+        }
+        StringBuilder sb = new StringBuilder("索引范围扫描 (");
+        for (int column = 0; column < plan.usedColumns; column++) {
+            if (column > 0) {
+                sb.append(", ");
+            }
+            sb.append(columns[column].getName());
+            if (query.kinds[column] == ComputerQuery.PRESENT) {
+                sb.append(" 非空");
+            }
+        }
+        sb.append(')');
+        int residual = 0;
+        for (int column = plan.usedColumns; column < COLUMN_COUNT; column++) {
+            if (query.kinds[column] != ComputerQuery.ANY) {
+                residual++;
+            }
+        }
+        if (residual > 0) {
+            sb.append("，范围内再过滤 ").append(residual).append(" 个条件");
+        }
+        return sb.toString();
+    }
+
+    // 索引键范围 [low, high]（已翻转符号位）与使用的索引列数
+    private static final class Plan {
+        final int[] codes;
+        final int usedColumns;
+        final long low;
+        final long high;
+
+        Plan(int[] codes, int usedColumns, long low, long high) {
+            this.codes = codes;
+            this.usedColumns = usedColumns;
+            this.low = low;
+            this.high = high;
+        }
+    }
+
+    private Plan plan(ComputerQuery query) {
+        int[] codes = new int[COLUMN_COUNT];
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            if (query.kinds[column] == ComputerQuery.EQUALS) {
+                codes[column] = columns[column].codeOf(query.values[column]);
+                if (codes[column] < 0) {
+                    return null;
+                }
+            }
+        }
+        // 最左前缀：连续的等值条件，后面至多跟一个范围条件
+        long low = 0;
+        long high = 0;
+        int used = 0;
+        while (used < INDEX_COLUMNS) {
+            int kind = query.kinds[used];
+            if (kind == ComputerQuery.EQUALS) {
+                low = (low << 16) | codes[used];
+                high = (high << 16) | codes[used];
+                used++;
+            } else if (kind == ComputerQuery.PRESENT) {
+                low = (low << 16) | (DictionaryColumn.NULL_CODE + 1);
+                high = (high << 16) | DictionaryColumn.MAX_CODE;
+                used++;
+                break;
+            } else {
+                break;
+            }
+        }
+        int remainingBits = (INDEX_COLUMNS - used) * 16;
+        low <<= remainingBits;
+        high = (high << remainingBits) | ((1L << remainingBits) - 1);
+        return new Plan(codes, used, low ^ KEY_BIAS, high ^ KEY_BIAS);
+    }
+
+    private int execute(ComputerQuery query, IntList result) {
+        ensureIndexed();
+        Plan plan = plan(query);
+        if (plan == null) {
+            return 0;
+        }
+        int count = 0;
+        if (plan.usedColumns == 0) {
+            for (int row = 0; row < size; row++) {
+                count += collect(query, plan, row, 0, result);
+            }
+            return count;
+        }
+        int from = lowerBound(plan.low);
+        // high 可能是最大键，不能用 lowerBound(high + 1)
+        int to = upperBound(plan.high);
+        for (int i = from; i < to; i++) {
+            count += collect(query, plan, rows[i], plan.usedColumns, result);
+        }
+        // 尚未进入索引的新行
+        for (int row = indexedRows; row < size; row++) {
+            count += collect(query, plan, row, 0, result);
+        }
+        return count;
+    }
+
+    // 检查从 firstColumn 开始的条件，前面的列已由索引保证
+    private int collect(ComputerQuery query, Plan plan, int row, int firstColumn, IntList result) {
+        for (int column = firstColumn; column < COLUMN_COUNT; column++) {
+            int kind = query.kinds[column];
+            if (kind == ComputerQuery.EQUALS && columns[column].get(row) != plan.codes[column]) {
+                return 0;
+            }
+            if (kind == ComputerQuery.PRESENT && columns[column].get(row) == DictionaryColumn.NULL_CODE) {
+                return 0;
+            }
+        }
+        if (result != null) {
+            result.add(row);
+        }
+        return 1;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = indexedRows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 第一个大于 key 的位置
+    private int upperBound(long key) {
+        int low = 0;
+        int high = indexedRows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 列数据加索引占用的内存（不含字典本身）
+    public long memoryBytes() {
+        long bytes = (long) indexedRows * (Long.BYTES + Integer.BYTES);
+        for (DictionaryColumn column : columns) {
+            bytes += column.memoryBytes(size);
+        }
+        return bytes;
+    }
+
+    // 可增长的 int 数组，避免装箱
+    private static final class IntList {
+        private int[] data = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
+
+public class ComputerIndexExample {
+    private static final String[] CPUS = {"Intel i5", "Intel i7", "Intel i9", "AMD Ryzen 5", "AMD Ryzen 7",
+            "AMD Ryzen 9", "Apple M2", "Apple M3"};
+    private static final String[] RAMS = {"8GB", "16GB", "32GB", "64GB", "128GB"};
+    private static final String[] STORAGES = {null, "256GB SSD", "512GB SSD", "1TB SSD", "2TB SSD", "2TB HDD"};
+    private static final String[] GPUS = {null, "RTX 3060", "RTX 4070", "RTX 4090", "RX 7800"};
+    private static final String[] COOLERS = {null, "风冷", "水冷"};
+    private static final String[] BOARDS = {null, "B650", "Z790", "X670E"};
+
+    private static <T> T pick(T[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== Computer 联合索引示例 ===\n");
+
+        int n = 2_000_000;
+        Random random = new Random(42);
+        List<Computer> list = new ArrayList<>(n);
+        ComputerIndex index = new ComputerIndex();
+        for (int i = 0; i < n; i++) {
+            Computer computer = new Computer.Builder(pick(CPUS, random), pick(RAMS, random))
+                    .setStorage(pick(STORAGES, random))
+                    .setGraphicsCard(pick(GPUS, random))
+                    .setCoolingSystem(pick(COOLERS, random))
+                    .setMotherboard(pick(BOARDS, random))
+                    .buildInterned();
+            list.add(computer);
+            index.add(computer);
+        }
+        index.rebuildIndex();
+        System.out.printf("%d 台电脑，列存储加索引占用 %.1fMB%n", n, index.memoryBytes() / 1024.0 / 1024.0);
+
+        ComputerQuery[] queries = {
+                new ComputerQuery().cpu("AMD Ryzen 7").ram("32GB").hasStorage(),
+                new ComputerQuery().cpu("Intel i9").ram("64GB").storage("2TB SSD").graphicsCard("RTX 4090"),
+                new ComputerQuery().cpu("Apple M3").hasStorage().coolingSystem("水冷"),
+                new ComputerQuery().ram("128GB").graphicsCard("RX 7800")
+        };
+        String[] labels = {
+                "cpu=AMD Ryzen 7 且 ram=32GB 且已配置存储",
+                "cpu=Intel i9 且 ram=64GB 且 storage=2TB SSD 且 graphicsCard=RTX 4090",
+                "cpu=Apple M3 且已配置存储 且 coolingSystem=水冷",
+                "ram=128GB 且 graphicsCard=RX 7800"
+        };
+
+        for (int q = 0; q < queries.length; q++) {
+            ComputerQuery query = queries[q];
+            System.out.println("\n查询: " + labels[q]);
+            System.out.println("执行计划: " + index.explain(query));
+
+            int scanCount = 0;
+            long indexNanos = 0;
+            long scanNanos = 0;
+            int indexCount = 0;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                indexCount = index.findRows(query).length;
+                indexNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                scanCount = 0;
+                for (Computer computer : list) {
+                    if (matches(computer, q)) {
+                        scanCount++;
+                    }
+                }
+                scanNanos = System.nanoTime() - start;
+            }
+            System.out.printf("索引: %d 条, %.3fms；逐个扫描对象: %d 条, %.1fms%n",
+                    indexCount, indexNanos / 1e6, scanCount, scanNanos / 1e6);
+        }
+
+        System.out.println("\n第一条结果:");
+        System.out.println(index.find(queries[1]).get(0));
+    }
+
+    // 与 queries 对应的对象扫描条件
+    private static boolean matches(Computer c, int query) {
+        switch (query) {
+            case 0:
+                return "AMD Ryzen 7".equals(c.getCpu()) && "32GB".equals(c.getRam()) && c.getStorage() != null;
+            case 1:
+                return "Intel i9".equals(c.getCpu()) && "64GB".equals(c.getRam())
+                        && "2TB SSD".equals(c.getStorage()) && "RTX 4090".equals(c.getGraphicsCard());
+            case 2:
+                return "Apple M3".equals(c.getCpu()) && c.getStorage() != null && "水冷".equals(c.getCoolingSystem());
+            default:
+                return "128GB".equals(c.getRam()) && "RX 7800".equals(c.getGraphicsCard());
+        }
+    }
+}
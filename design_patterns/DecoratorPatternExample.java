@@ -1,5 +1,7 @@
 // Decorator Pattern Example - 动态地给对象添加功能
 
+package designpatterns;
+
 import java.io.*;
 
 // 组件接口
@@ -88,6 +90,7 @@ class ChocolateDecorator extends CoffeeDecorator {
 }
 
 // Java I/O流的实际应用示例
+// 注意：逐字段写流只适合少量数据，大批量定长记录请参考 RecordFileExample
 class StreamDecoratorExample {
     public static void demonstrateStreamDecorators() {
         System.out.println("\n=== Java I/O流装饰器示例 ===");
@@ -154,6 +157,7 @@ public class DecoratorPatternExample {
                           " - 价格: $" + deluxeCoffee.getCost());
         
         // 动态组合示例
+        // 订单流程中相同组合会反复出现，可使用 CoffeeCompositionService 缓存组合结果
         System.out.println("\n=== 动态组合示例 ===");
         Coffee myCoffee = simpleCoffee;
         String[] additions = {"milk", "sugar", "chocolate"};
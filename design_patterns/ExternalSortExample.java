@@ -0,0 +1,519 @@
+// External Sort Example - 外部归并排序策略，数据量超过堆内存时使用
+// 输入/输出文件为连续的大端 int32，按内存预算切块并行排序，溢写为有序段后多路归并
+
+package designpatterns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ExternalSortStrategy implements SortStrategy {
+    // 每个归并输入至少分到这么大的缓冲区，否则改为多趟归并
+    private static final int MIN_MERGE_BUFFER = 64 * 1024;
+    private static final int OUTPUT_BUFFER = 1024 * 1024;
+
+    private final long memoryBudget;
+    private final Path tempDirectory;
+    private final long maxTempBytes;
+    private final int parallelism;
+
+    private ExternalSortStrategy(Builder builder) {
+        this.memoryBudget = builder.memoryBudget;
+        this.tempDirectory = builder.tempDirectory;
+        this.maxTempBytes = builder.maxTempBytes;
+        this.parallelism = builder.parallelism;
+    }
+
+    // 数组已经在内存中，不需要溢写，直接并行排序
+    @Override
+    public void sort(int[] array) {
+        Arrays.parallelSort(array);
+    }
+
+    public ExternalSortStats sortFile(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong tempBytes = new AtomicLong();
+        List<Path> runs = new ArrayList<>();
+        List<Path> intermediates = new ArrayList<>();
+        try {
+            long inputBytes = createRuns(input, runs, tempBytes);
+            int passes = 0;
+            int fanIn = maxFanIn();
+            // 段数过多时先分组归并成更少、更长的段
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    // 先按输入总大小预留临时空间，超出上限时在写出之前就失败
+                    long groupBytes = 0;
+                    for (Path run : group) {
+                        groupBytes += Files.size(run);
+                    }
+                    reserveTemp(tempBytes, groupBytes);
+                    Path next = newTempFile();
+                    intermediates.add(next);
+                    merged.add(next);
+                    merge(group, next);
+                    for (Path run : group) {
+                        tempBytes.addAndGet(-Files.size(run));
+                        Files.deleteIfExists(run);
+                    }
+                }
+                runs = merged;
+                passes++;
+            }
+            int finalRuns = runs.size();
+            merge(runs, output);
+            passes++;
+            return new ExternalSortStats(inputBytes / 4, finalRuns, passes, System.nanoTime() - start);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            for (Path run : intermediates) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    // 第一阶段：读取一块 -> 并行排序 -> 写成有序段；同时在途的块数不超过 parallelism
+    private long createRuns(Path input, List<Path> runs, AtomicLong tempBytes) throws IOException {
+        int chunkInts = (int) Math.min(Integer.MAX_VALUE - 8, memoryBudget / 4 / parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<Future<Path>> pending = new ArrayList<>();
+        long inputBytes = 0;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            inputBytes = channel.size();
+            if (inputBytes % 4 != 0) {
+                throw new IOException("输入文件长度不是4的倍数: " + input);
+            }
+            ByteBuffer readBuffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER);
+            long remaining = inputBytes / 4;
+            int collected = 0;
+            while (remaining > 0) {
+                int size = (int) Math.min(chunkInts, remaining);
+                inFlight.acquire();
+                // 某个块失败（如超出临时空间上限）时立即停止读取，不必等整个输入处理完
+                collected = collectCompleted(pending, collected, runs);
+                int[] chunk = new int[size];
+                readInts(channel, readBuffer, chunk);
+                remaining -= size;
+                pending.add(executor.submit(() -> {
+                    try {
+                        Arrays.sort(chunk);
+                        reserveTemp(tempBytes, (long) chunk.length * 4);
+                        Path run = newTempFile();
+                        try (IntChannelWriter writer = new IntChannelWriter(run, OUTPUT_BUFFER)) {
+                            writer.write(chunk, 0, chunk.length);
+                        } catch (IOException | RuntimeException e) {
+                            // 失败（包括被中断）的段不会登记，由任务自己删除
+                            Files.deleteIfExists(run);
+                            throw e;
+                        }
+                        return run;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<Path> future : pending.subList(collected, pending.size())) {
+                runs.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("外部排序被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("生成有序段失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            // 无论成功、失败还是被中断，都等在途任务结束，把已写出的段登记下来，由 sortFile 统一删除
+            collectRuns(executor, pending, runs);
+        }
+        return inputBytes;
+    }
+
+    // 按顺序登记已完成的段，返回第一个未登记的下标；在途任务中已失败的立即抛出
+    private static int collectCompleted(List<Future<Path>> pending, int collected, List<Path> runs)
+            throws InterruptedException, ExecutionException {
+        while (collected < pending.size() && pending.get(collected).isDone()) {
+            runs.add(pending.get(collected++).get());
+        }
+        // 剩下的最多 parallelism 个，检查其中是否有已失败的
+        for (int i = collected; i < pending.size(); i++) {
+            if (pending.get(i).isDone()) {
+                pending.get(i).get();
+            }
+        }
+        return collected;
+    }
+
+    private static void collectRuns(ExecutorService executor, List<Future<Path>> pending, List<Path> runs) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (Future<Path> future : pending) {
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    Path run = future.get();
+                    if (!runs.contains(run)) {
+                        runs.add(run);
+                    }
+                } catch (InterruptedException | ExecutionException ignored) {
+                    // 失败的任务已经删除了自己的文件
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 第二阶段：用最小堆做多路归并，堆中只存原始类型
+    private void merge(List<Path> runs, Path output) throws IOException {
+        int k = runs.size();
+        int bufferBytes = (int) Math.max(MIN_MERGE_BUFFER, Math.min(OUTPUT_BUFFER, memoryBudget / (k + 1)));
+        IntChannelReader[] readers = new IntChannelReader[k];
+        try (IntChannelWriter writer = new IntChannelWriter(output, bufferBytes)) {
+            int[] heapValues = new int[k];
+            int[] heapRuns = new int[k];
+            int heapSize = 0;
+            for (int i = 0; i < k; i++) {
+                readers[i] = new IntChannelReader(runs.get(i), bufferBytes);
+                if (readers[i].hasNext()) {
+                    heapValues[heapSize] = readers[i].next();
+                    heapRuns[heapSize] = i;
+                    siftUp(heapValues, heapRuns, heapSize++);
+                }
+            }
+            while (heapSize > 0) {
+                writer.write(heapValues[0]);
+                IntChannelReader reader = readers[heapRuns[0]];
+                if (reader.hasNext()) {
+                    heapValues[0] = reader.next();
+                } else {
+                    heapSize--;
+                    heapValues[0] = heapValues[heapSize];
+                    heapRuns[0] = heapRuns[heapSize];
+                }
+                siftDown(heapValues, heapRuns, heapSize);
+            }
+        } finally {
+            for (IntChannelReader reader : readers) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    private static void siftUp(int[] values, int[] runs, int i) {
+        int value = values[i];
+        int run = runs[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (values[parent] <= value) {
+                break;
+            }
+            values[i] = values[parent];
+            runs[i] = runs[parent];
+            i = parent;
+        }
+        values[i] = value;
+        runs[i] = run;
+    }
+
+    private static void siftDown(int[] values, int[] runs, int size) {
+        if (size == 0) {
+            return;
+        }
+        int value = values[0];
+        int run = runs[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && values[child + 1] < values[child]) {
+                child++;
+            }
+            if (values[child] >= value) {
+                break;
+            }
+            values[i] = values[child];
+            runs[i] = runs[child];
+            i = child;
+        }
+        values[i] = value;
+        runs[i] = run;
+    }
+
+    private int maxFanIn() {
+        return (int) Math.max(2, Math.min(1024, memoryBudget / MIN_MERGE_BUFFER - 1));
+    }
+
+    private void reserveTemp(AtomicLong tempBytes, long bytes) throws IOException {
+        long total = tempBytes.addAndGet(bytes);
+        if (total > maxTempBytes) {
+            throw new IOException("临时文件超出上限: " + total + " > " + maxTempBytes + " 字节");
+        }
+    }
+
+    private Path newTempFile() throws IOException {
+        return Files.createTempFile(tempDirectory, "sort-run-", ".bin");
+    }
+
+    private static void readInts(FileChannel channel, ByteBuffer buffer, int[] dest) throws IOException {
+        int filled = 0;
+        while (filled < dest.length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (long) (dest.length - filled) * 4));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("输入文件提前结束");
+                }
+            }
+            buffer.flip();
+            IntBuffer ints = buffer.asIntBuffer();
+            int n = ints.remaining();
+            ints.get(dest, filled, n);
+            filled += n;
+        }
+    }
+
+    public static class Builder {
+        private long memoryBudget = 64L * 1024 * 1024;
+        private Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        private long maxTempBytes = Long.MAX_VALUE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        // 排序阶段所有在途块加起来的内存上限
+        public Builder setMemoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        public Builder setTempDirectory(Path tempDirectory) {
+            this.tempDirectory = tempDirectory;
+            return this;
+        }
+
+        // 临时文件总大小上限，超出时排序失败
+        public Builder setMaxTempBytes(long maxTempBytes) {
+            this.maxTempBytes = maxTempBytes;
+            return this;
+        }
+
+        public Builder setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public ExternalSortStrategy build() {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism 必须大于0: " + parallelism);
+            }
+            if (memoryBudget < 4L * parallelism * 1024) {
+                throw new IllegalArgumentException("内存预算过小: " + memoryBudget);
+            }
+            return new ExternalSortStrategy(this);
+        }
+    }
+}
+
+// 排序结果统计
+class ExternalSortStats {
+    private final long keys;
+    private final int runs;
+    private final int mergePasses;
+    private final long elapsedNanos;
+
+    ExternalSortStats(long keys, int runs, int mergePasses, long elapsedNanos) {
+        this.keys = keys;
+        this.runs = runs;
+        this.mergePasses = mergePasses;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("排序 %d 个键，最终归并 %d 个有序段，共 %d 趟归并，耗时 %.1fms",
+                keys, runs, mergePasses, elapsedNanos / 1e6);
+    }
+}
+
+// 带缓冲的 int 顺序读取器
+class IntChannelReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private IntBuffer ints;
+    private boolean eof;
+
+    IntChannelReader(Path path, int bufferBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes & ~3);
+        this.ints = IntBuffer.allocate(0);
+    }
+
+    boolean hasNext() throws IOException {
+        if (ints.hasRemaining()) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+        ints = buffer.asIntBuffer();
+        return ints.hasRemaining();
+    }
+
+    int next() {
+        return ints.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+// 带缓冲的 int 顺序写入器
+class IntChannelWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final IntBuffer ints;
+
+    IntChannelWriter(Path path, int bufferBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes & ~3);
+        this.ints = buffer.asIntBuffer();
+    }
+
+    void write(int value) throws IOException {
+        if (!ints.hasRemaining()) {
+            flush();
+        }
+        ints.put(value);
+    }
+
+    void write(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!ints.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(length, ints.remaining());
+            ints.put(values, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.clear();
+        buffer.limit(ints.position() * 4);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ints.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
+
+public class ExternalSortExample {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== 外部归并排序示例 ===\n");
+
+        int keys = 5_000_000;
+        Path input = Files.createTempFile("unsorted", ".bin");
+        Path output = Files.createTempFile("sorted", ".bin");
+        try {
+            Random random = new Random(42);
+            try (IntChannelWriter writer = new IntChannelWriter(input, 1024 * 1024)) {
+                for (int i = 0; i < keys; i++) {
+                    writer.write(random.nextInt());
+                }
+            }
+            System.out.println("输入文件: " + Files.size(input) / 1024 / 1024 + "MB");
+
+            // 故意只给 4MB 内存预算，迫使产生多个有序段
+            ExternalSortStrategy strategy = new ExternalSortStrategy.Builder()
+                    .setMemoryBudget(4L * 1024 * 1024)
+                    .setParallelism(4)
+                    .setMaxTempBytes(Files.size(input) * 3)
+                    .build();
+            ExternalSortStats stats = strategy.sortFile(input, output);
+            System.out.println(stats);
+
+            boolean sorted = true;
+            long count = 0;
+            try (IntChannelReader reader = new IntChannelReader(output, 1024 * 1024)) {
+                int previous = Integer.MIN_VALUE;
+                while (reader.hasNext()) {
+                    int value = reader.next();
+                    sorted &= value >= previous;
+                    previous = value;
+                    count++;
+                }
+            }
+            System.out.println("输出有序: " + sorted + ", 键数量一致: " + (count == keys));
+
+            // 同一个策略也可以交给 Sorter 排序内存中的数组
+            Sorter sorter = new Sorter();
+            sorter.setStrategy(strategy);
+            int[] numbers = {64, 34, 25, 12, 22, 11, 90};
+            sorter.sortArray(numbers);
+            System.out.println("内存数组: " + Arrays.toString(numbers));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 // Example of Factory Pattern
 
+package designpatterns;
+
 // Product Interface
 interface Shape {
     void draw();
@@ -9,14 +11,14 @@ interface Shape {
 class Circle implements Shape {
     @Override
     public void draw() {
-        System.out.println("Drawing a Circle");
+        ConsoleOutput.println("Drawing a Circle");
     }
 }
 
 class Rectangle implements Shape {
     @Override
     public void draw() {
-        System.out.println("Drawing a Rectangle");
+        ConsoleOutput.println("Drawing a Rectangle");
     }
 }
 
@@ -0,0 +1,299 @@
+// Filtered Observer Example - 按内容订阅的观察者与兴趣索引
+// 观察者在订阅时声明关心的键、前缀或条件，Subject 只通知匹配的观察者，
+// 一次通知的开销与感兴趣的观察者数量成正比，而不是与全部观察者数量成正比
+
+package designpatterns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// 兴趣索引 - 精确键用哈希桶，前缀用字典树，条件订阅逐个求值
+final class ObserverInterestIndex {
+    private static final String WILDCARD = "*";
+
+    // 子节点按字符排序存放在两个平行数组中，查找用二分，不装箱 Character
+    private static final class TrieNode {
+        private static final char[] NO_KEYS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        char[] keys = NO_KEYS;
+        TrieNode[] children = NO_CHILDREN;
+        int childCount;
+        final List<Observer> observers = new ArrayList<>();
+
+        TrieNode child(char c) {
+            int i = indexOf(c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        TrieNode getOrAddChild(char c) {
+            int i = indexOf(c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int insertAt = -i - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            TrieNode child = new TrieNode();
+            keys[insertAt] = c;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+
+        void removeChildAt(int i) {
+            System.arraycopy(keys, i + 1, keys, i, childCount - i - 1);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            children[--childCount] = null;
+        }
+
+        int indexOf(char c) {
+            return Arrays.binarySearch(keys, 0, childCount, c);
+        }
+
+        boolean isEmpty() {
+            return observers.isEmpty() && childCount == 0;
+        }
+    }
+
+    private static final class FilteredObserver {
+        final Predicate<String> filter;
+        final Observer observer;
+
+        FilteredObserver(Predicate<String> filter, Observer observer) {
+            this.filter = filter;
+            this.observer = observer;
+        }
+    }
+
+    private final Map<String, List<Observer>> exact = new HashMap<>();
+    private final TrieNode prefixes = new TrieNode();
+    private final List<FilteredObserver> filtered = new ArrayList<>();
+    private int size;
+
+    // 以 * 结尾的模式按前缀匹配，单独的 * 匹配所有状态，其余按键精确匹配
+    void add(String pattern, Observer observer) {
+        if (pattern.endsWith(WILDCARD)) {
+            TrieNode node = prefixes;
+            for (int i = 0; i < pattern.length() - 1; i++) {
+                node = node.getOrAddChild(pattern.charAt(i));
+            }
+            node.observers.add(observer);
+        } else {
+            exact.computeIfAbsent(pattern, k -> new ArrayList<>()).add(observer);
+        }
+        size++;
+    }
+
+    void add(Predicate<String> filter, Observer observer) {
+        filtered.add(new FilteredObserver(filter, observer));
+        size++;
+    }
+
+    // 按订阅模式定位并移除一个订阅，空桶和空的字典树分支一并删除
+    boolean remove(String pattern, Observer observer) {
+        if (pattern.endsWith(WILDCARD)) {
+            return removePrefix(prefixes, pattern, 0, observer);
+        }
+        List<Observer> bucket = exact.get(pattern);
+        if (bucket == null || !removeIdentical(bucket, observer)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            exact.remove(pattern);
+        }
+        return true;
+    }
+
+    private boolean removePrefix(TrieNode node, String pattern, int depth, Observer observer) {
+        if (depth == pattern.length() - 1) {
+            return removeIdentical(node.observers, observer);
+        }
+        int index = node.indexOf(pattern.charAt(depth));
+        if (index < 0 || !removePrefix(node.children[index], pattern, depth + 1, observer)) {
+            return false;
+        }
+        if (node.children[index].isEmpty()) {
+            node.removeChildAt(index);
+        }
+        return true;
+    }
+
+    private boolean removeIdentical(List<Observer> observers, Observer observer) {
+        for (int i = 0; i < observers.size(); i++) {
+            if (observers.get(i) == observer) {
+                observers.remove(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 移除所有满足条件的订阅，需要扫描整个索引
+    boolean removeAll(Predicate<Observer> matcher) {
+        int before = size;
+        for (Iterator<List<Observer>> it = exact.values().iterator(); it.hasNext(); ) {
+            List<Observer> bucket = it.next();
+            size -= removeMatching(bucket, matcher);
+            if (bucket.isEmpty()) {
+                it.remove();
+            }
+        }
+        removeAll(prefixes, matcher);
+        int filteredBefore = filtered.size();
+        filtered.removeIf(entry -> matcher.test(entry.observer));
+        size -= filteredBefore - filtered.size();
+        return size != before;
+    }
+
+    private void removeAll(TrieNode node, Predicate<Observer> matcher) {
+        size -= removeMatching(node.observers, matcher);
+        // 倒序遍历，删除子节点不影响尚未访问的下标
+        for (int i = node.childCount - 1; i >= 0; i--) {
+            removeAll(node.children[i], matcher);
+            if (node.children[i].isEmpty()) {
+                node.removeChildAt(i);
+            }
+        }
+    }
+
+    private static int removeMatching(List<Observer> observers, Predicate<Observer> matcher) {
+        int before = observers.size();
+        observers.removeIf(matcher);
+        return before - observers.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    // 通知所有匹配的观察者，返回通知次数；同一观察者的多个订阅各自投递
+    // null 状态不匹配任何键、前缀或条件，只通知无条件订阅的观察者（由 Subject 负责），条件不会收到 null
+    int dispatch(String state) {
+        if (state == null) {
+            return 0;
+        }
+        int notified = 0;
+        List<Observer> bucket = exact.get(state);
+        if (bucket != null) {
+            notified += notifyAll(bucket, state);
+        }
+        // 沿状态字符串走字典树，路径上每个节点的观察者都订阅了它的某个前缀
+        TrieNode node = prefixes;
+        for (int i = 0; node != null; i++) {
+            notified += notifyAll(node.observers, state);
+            node = i < state.length() ? node.child(state.charAt(i)) : null;
+        }
+        for (FilteredObserver entry : filtered) {
+            if (entry.filter.test(state)) {
+                entry.observer.update(state);
+                notified++;
+            }
+        }
+        return notified;
+    }
+
+    private static int notifyAll(List<Observer> observers, String state) {
+        for (Observer observer : observers) {
+            observer.update(state);
+        }
+        return observers.size();
+    }
+}
+
+public class FilteredObserverExample {
+    // 计数观察者：只统计收到的通知数量
+    static final class CountingObserver implements Observer {
+        int received;
+
+        @Override
+        public void update(String state) {
+            received++;
+        }
+    }
+
+    // 旧写法：收到所有通知后在 update 中自行过滤
+    static final class SelfFilteringObserver implements Observer {
+        private final String key;
+        int received;
+
+        SelfFilteringObserver(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void update(String state) {
+            if (key.equals(state)) {
+                received++;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== 按内容订阅的观察者示例 ===\n");
+
+        Subject subject = new Subject();
+        subject.attach("order.created", new ConcreteObserver("订单创建监听"));
+        subject.attach("order.*", new ConcreteObserver("订单事件监听"));
+        subject.attach(state -> state.contains("failed"), new ConcreteObserver("失败告警"));
+        subject.attach(new ConcreteObserver("全部事件监听"));
+
+        subject.setState("order.created");
+        subject.setState("order.payment.failed");
+        subject.setState("inventory.updated");
+        // null 状态只通知无条件订阅的观察者，不传给条件
+        subject.setState(null);
+
+        System.out.println("\n通知性能对比 (10000个传感器观察者，2万次状态变更):");
+        int sensors = 10_000;
+        int updates = 20_000;
+        String[] keys = new String[sensors];
+        for (int i = 0; i < sensors; i++) {
+            keys[i] = "sensor-" + i;
+        }
+
+        for (int round = 0; round < 3; round++) {
+            Subject broadcast = new Subject();
+            SelfFilteringObserver[] selfFiltering = new SelfFilteringObserver[sensors];
+            for (int i = 0; i < sensors; i++) {
+                selfFiltering[i] = new SelfFilteringObserver(keys[i]);
+                broadcast.attach(selfFiltering[i]);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                broadcast.setState(keys[i % sensors]);
+            }
+            long broadcastNanos = System.nanoTime() - start;
+
+            Subject indexed = new Subject();
+            CountingObserver[] counting = new CountingObserver[sensors];
+            for (int i = 0; i < sensors; i++) {
+                counting[i] = new CountingObserver();
+                indexed.attach(keys[i], counting[i]);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                indexed.setState(keys[i % sensors]);
+            }
+            long indexedNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.printf("广播后自行过滤: %.1fms%n", broadcastNanos / 1e6);
+                System.out.printf("兴趣索引: %.1fms, 每个观察者收到 %d 次 (与广播一致: %b)%n",
+                        indexedNanos / 1e6, counting[0].received,
+                        counting[0].received == selfFiltering[0].received);
+            }
+        }
+    }
+}
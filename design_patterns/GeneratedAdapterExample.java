@@ -0,0 +1,554 @@
+// Generated Adapter Example - 运行时生成适配器，不使用反射调用
+// 给定目标接口、被适配类和方法映射，生成一个与手写 ObjectAdapter 等价的类：
+// 目标是函数式接口且参数一一对应时使用 LambdaMetafactory（与 Mp4Player::playMp4 的编译结果相同），
+// 其余情况（多方法接口、丢弃或调整参数）直接生成字节码，以隐藏类加载。生成后的调用是普通的虚方法调用，可被 JIT 内联
+
+package designpatterns;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 适配器工厂 - 生成一次，之后每个被适配对象只需一次构造
+final class AdapterFactory<T> {
+    private final Class<T> target;
+    private final Class<?> adapteeType;
+    private final MethodHandle constructor;
+    private final String kind;
+
+    AdapterFactory(Class<T> target, Class<?> adapteeType, MethodHandle constructor, String kind) {
+        this.target = target;
+        this.adapteeType = adapteeType;
+        this.constructor = constructor.asType(MethodType.methodType(Object.class, Object.class));
+        this.kind = kind;
+    }
+
+    public T adapt(Object adaptee) {
+        adapteeType.cast(adaptee);
+        try {
+            return target.cast(constructor.invokeExact(adaptee));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("创建适配器失败", e);
+        }
+    }
+
+    // 生成方式：LambdaMetafactory 或 隐藏类
+    public String getKind() {
+        return kind;
+    }
+}
+
+// 适配器生成器
+class AdapterGenerator<T> {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> target;
+    private final Class<?> adapteeType;
+    // 目标方法名 -> (被适配方法名, 传给被适配方法的目标参数下标)
+    private final Map<String, String> methodNames = new LinkedHashMap<>();
+    private final Map<String, int[]> argumentIndexes = new HashMap<>();
+
+    private AdapterGenerator(Class<T> target, Class<?> adapteeType) {
+        if (!target.isInterface()) {
+            throw new IllegalArgumentException("目标类型必须是接口: " + target.getName());
+        }
+        this.target = target;
+        this.adapteeType = adapteeType;
+    }
+
+    public static <T> AdapterGenerator<T> of(Class<T> target, Class<?> adapteeType) {
+        return new AdapterGenerator<>(target, adapteeType);
+    }
+
+    // 目标方法调用时按顺序传递全部参数
+    public AdapterGenerator<T> map(String targetMethod, String adapteeMethod) {
+        return map(targetMethod, adapteeMethod, null);
+    }
+
+    // arguments 为传给被适配方法的目标参数下标，可以丢弃或调整顺序，如 play(audioType, fileName) -> playMp4(fileName) 为 {1}
+    public AdapterGenerator<T> map(String targetMethod, String adapteeMethod, int... arguments) {
+        methodNames.put(targetMethod, adapteeMethod);
+        argumentIndexes.put(targetMethod, arguments);
+        return this;
+    }
+
+    public AdapterFactory<T> build() {
+        List<Method> abstractMethods = new ArrayList<>();
+        for (Method method : target.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers())) {
+                abstractMethods.add(method);
+            }
+        }
+        List<Binding> bindings = new ArrayList<>();
+        for (Method method : abstractMethods) {
+            String adapteeName = methodNames.get(method.getName());
+            if (adapteeName == null) {
+                throw new IllegalArgumentException("目标方法未映射: " + method);
+            }
+            bindings.add(bind(method, adapteeName, argumentIndexes.get(method.getName())));
+        }
+        for (String name : methodNames.keySet()) {
+            if (abstractMethods.stream().noneMatch(m -> m.getName().equals(name))) {
+                throw new IllegalArgumentException(target.getName() + " 中没有抽象方法: " + name);
+            }
+        }
+        try {
+            if (bindings.size() == 1 && bindings.get(0).isIdentity()) {
+                return lambdaFactory(bindings.get(0));
+            }
+            return hiddenClassFactory(bindings);
+        } catch (ReflectiveOperationException | LambdaConversionException e) {
+            throw new IllegalStateException("生成适配器失败: " + target.getName() + " <- " + adapteeType.getName(), e);
+        }
+    }
+
+    // 目标方法与被适配方法的对应关系
+    private static final class Binding {
+        final Method targetMethod;
+        final Method adapteeMethod;
+        final int[] arguments;
+
+        Binding(Method targetMethod, Method adapteeMethod, int[] arguments) {
+            this.targetMethod = targetMethod;
+            this.adapteeMethod = adapteeMethod;
+            this.arguments = arguments;
+        }
+
+        boolean isIdentity() {
+            if (arguments.length != targetMethod.getParameterCount()) {
+                return false;
+            }
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] != i) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private Binding bind(Method targetMethod, String adapteeName, int[] arguments) {
+        Class<?>[] targetParams = targetMethod.getParameterTypes();
+        if (arguments == null) {
+            arguments = new int[targetParams.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = i;
+            }
+        }
+        Class<?>[] passed = new Class<?>[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] < 0 || arguments[i] >= targetParams.length) {
+                throw new IllegalArgumentException(targetMethod.getName() + " 的参数下标越界: " + arguments[i]);
+            }
+            passed[i] = targetParams[arguments[i]];
+        }
+        Method adapteeMethod = findMethod(adapteeName, passed);
+        Class<?> want = targetMethod.getReturnType();
+        Class<?> have = adapteeMethod.getReturnType();
+        boolean compatible = want == void.class
+                || (want.isPrimitive() ? want == have : !have.isPrimitive() && want.isAssignableFrom(have));
+        if (!compatible) {
+            throw new IllegalArgumentException("返回类型不兼容: " + targetMethod + " <- " + adapteeMethod);
+        }
+        return new Binding(targetMethod, adapteeMethod, arguments.clone());
+    }
+
+    // 参数类型可以是目标参数类型的父类型；静态方法和私有方法不支持
+    // 生成的类与 LOOKUP 在同一个包中，其他包里的包私有和 protected 方法调用时会抛 IllegalAccessError，这里提前排除
+    private Method findMethod(String name, Class<?>[] passed) {
+        Method inaccessible = null;
+        for (Class<?> type = adapteeType; type != null; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.getName().equals(name) && accepts(method.getParameterTypes(), passed)
+                        && !Modifier.isStatic(method.getModifiers()) && !Modifier.isPrivate(method.getModifiers())) {
+                    if (isAccessible(method)) {
+                        return method;
+                    }
+                    inaccessible = method;
+                }
+            }
+        }
+        for (Method method : adapteeType.getMethods()) {
+            if (method.getName().equals(name) && accepts(method.getParameterTypes(), passed)
+                    && !Modifier.isStatic(method.getModifiers())) {
+                if (isAccessible(method)) {
+                    return method;
+                }
+                inaccessible = method;
+            }
+        }
+        if (inaccessible != null) {
+            throw new IllegalArgumentException("方法不可访问: " + inaccessible);
+        }
+        throw new IllegalArgumentException(adapteeType.getName() + " 中没有方法 " + name + Arrays.toString(passed));
+    }
+
+    // unreflect 对 protected 方法会把接收者收窄为 LOOKUP 所在类而放行，但生成的类不是声明类的子类，要单独排除
+    private static boolean isAccessible(Method method) {
+        if (Modifier.isProtected(method.getModifiers())
+                && !method.getDeclaringClass().getPackageName().equals(LOOKUP.lookupClass().getPackageName())) {
+            return false;
+        }
+        try {
+            LOOKUP.unreflect(method);
+            return true;
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+
+    private static boolean accepts(Class<?>[] declared, Class<?>[] passed) {
+        if (declared.length != passed.length) {
+            return false;
+        }
+        for (int i = 0; i < declared.length; i++) {
+            boolean ok = declared[i].isPrimitive() ? declared[i] == passed[i]
+                    : !passed[i].isPrimitive() && declared[i].isAssignableFrom(passed[i]);
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AdapterFactory<T> lambdaFactory(Binding binding) throws ReflectiveOperationException,
+            LambdaConversionException {
+        Method sam = binding.targetMethod;
+        Method impl = binding.adapteeMethod;
+        MethodHandle implHandle = LOOKUP.unreflect(impl);
+        MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, sam.getName(),
+                MethodType.methodType(target, adapteeType), samType, implHandle, samType);
+        return new AdapterFactory<>(target, adapteeType, site.getTarget(), "LambdaMetafactory");
+    }
+
+    private AdapterFactory<T> hiddenClassFactory(List<Binding> bindings) throws ReflectiveOperationException {
+        String className = LOOKUP.lookupClass().getPackageName().replace('.', '/') + "/GeneratedAdapter";
+        byte[] bytes = AdapterClassWriter.write(className, target, adapteeType, bindings);
+        MethodHandles.Lookup hidden = LOOKUP.defineHiddenClass(bytes, true);
+        MethodHandle constructor = hidden.findConstructor(hidden.lookupClass(),
+                MethodType.methodType(void.class, adapteeType));
+        return new AdapterFactory<>(target, adapteeType, constructor, "隐藏类");
+    }
+
+    // 最小化的 class 文件生成：一个保存被适配对象的 final 字段、一个构造函数、每个目标方法一个转发方法
+    // 方法体中没有分支，因此不需要 StackMapTable
+    private static final class AdapterClassWriter {
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int poolCount = 1;
+
+        static byte[] write(String className, Class<?> target, Class<?> adapteeType, List<Binding> bindings) {
+            try {
+                return new AdapterClassWriter().generate(className, target, adapteeType, bindings);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private byte[] generate(String className, Class<?> target, Class<?> adapteeType, List<Binding> bindings)
+                throws IOException {
+            int thisClass = classRef(className);
+            int superClass = classRef("java/lang/Object");
+            int targetClass = classRef(internalName(target));
+            String adapteeDescriptor = descriptor(adapteeType);
+            int field = memberRef(9, className, "adaptee", adapteeDescriptor);
+            int fieldName = utf8("adaptee");
+            int fieldDescriptor = utf8(adapteeDescriptor);
+            int code = utf8("Code");
+            int objectInit = memberRef(10, "java/lang/Object", "<init>", "()V");
+
+            ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            DataOutputStream methods = new DataOutputStream(methodBytes);
+
+            // 构造函数：super(); this.adaptee = adaptee;
+            ByteArrayOutputStream init = new ByteArrayOutputStream();
+            init.write(0x2a);
+            init.write(0xb7);
+            writeShort(init, objectInit);
+            init.write(0x2a);
+            init.write(0x2b);
+            init.write(0xb5);
+            writeShort(init, field);
+            init.write(0xb1);
+            writeMethod(methods, 0x0001, utf8("<init>"), utf8("(" + adapteeDescriptor + ")V"), code, 2, 2,
+                    init.toByteArray());
+
+            for (Binding binding : bindings) {
+                Method targetMethod = binding.targetMethod;
+                Method adapteeMethod = binding.adapteeMethod;
+                Class<?>[] params = targetMethod.getParameterTypes();
+                int[] slots = new int[params.length];
+                int locals = 1;
+                for (int i = 0; i < params.length; i++) {
+                    slots[i] = locals;
+                    locals += size(params[i]);
+                }
+
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                body.write(0x2a);
+                body.write(0xb4);
+                writeShort(body, field);
+                int stack = 1;
+                for (int index : binding.arguments) {
+                    body.write(loadOpcode(params[index]));
+                    body.write(slots[index]);
+                    stack += size(params[index]);
+                }
+                Class<?> owner = adapteeMethod.getDeclaringClass();
+                String methodDescriptor = methodDescriptor(adapteeMethod.getReturnType(),
+                        adapteeMethod.getParameterTypes());
+                if (owner.isInterface()) {
+                    body.write(0xb9);
+                    writeShort(body, memberRef(11, internalName(owner), adapteeMethod.getName(), methodDescriptor));
+                    body.write(stack);
+                    body.write(0);
+                } else {
+                    body.write(0xb6);
+                    writeShort(body, memberRef(10, internalName(owner), adapteeMethod.getName(), methodDescriptor));
+                }
+                Class<?> returned = adapteeMethod.getReturnType();
+                Class<?> wanted = targetMethod.getReturnType();
+                if (wanted == void.class && returned != void.class) {
+                    body.write(size(returned) == 2 ? 0x58 : 0x57);
+                }
+                body.write(returnOpcode(wanted));
+                stack = Math.max(stack, size(returned));
+                writeMethod(methods, 0x0001, utf8(targetMethod.getName()),
+                        utf8(methodDescriptor(wanted, params)), code, stack, locals, body.toByteArray());
+            }
+
+            ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(classBytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            // Java 17
+            out.writeShort(61);
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            // ACC_FINAL | ACC_SUPER
+            out.writeShort(0x0030);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(targetClass);
+            out.writeShort(1);
+            // ACC_PRIVATE | ACC_FINAL
+            out.writeShort(0x0012);
+            out.writeShort(fieldName);
+            out.writeShort(fieldDescriptor);
+            out.writeShort(0);
+            out.writeShort(bindings.size() + 1);
+            out.write(methodBytes.toByteArray());
+            out.writeShort(0);
+            return classBytes.toByteArray();
+        }
+
+        private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int code,
+                                        int maxStack, int maxLocals, byte[] body) throws IOException {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(code);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+        private static void writeShort(ByteArrayOutputStream out, int value) {
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        private int utf8(String value) throws IOException {
+            Integer index = entries.get("U" + value);
+            if (index == null) {
+                pool.writeByte(1);
+                pool.writeUTF(value);
+                index = poolCount++;
+                entries.put("U" + value, index);
+            }
+            return index;
+        }
+
+        private int classRef(String internalName) throws IOException {
+            Integer index = entries.get("C" + internalName);
+            if (index == null) {
+                int name = utf8(internalName);
+                pool.writeByte(7);
+                pool.writeShort(name);
+                index = poolCount++;
+                entries.put("C" + internalName, index);
+            }
+            return index;
+        }
+
+        // tag 9 字段、10 类方法、11 接口方法
+        private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+            String key = "M" + tag + owner + "." + name + descriptor;
+            Integer index = entries.get(key);
+            if (index == null) {
+                int ownerClass = classRef(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                pool.writeByte(12);
+                pool.writeShort(nameIndex);
+                pool.writeShort(descriptorIndex);
+                int nameAndType = poolCount++;
+                pool.writeByte(tag);
+                pool.writeShort(ownerClass);
+                pool.writeShort(nameAndType);
+                index = poolCount++;
+                entries.put(key, index);
+            }
+            return index;
+        }
+
+        private static String internalName(Class<?> type) {
+            return type.getName().replace('.', '/');
+        }
+
+        private static String descriptor(Class<?> type) {
+            if (type.isPrimitive()) {
+                return type == void.class ? "V"
+                        : type == int.class ? "I"
+                        : type == long.class ? "J"
+                        : type == double.class ? "D"
+                        : type == float.class ? "F"
+                        : type == boolean.class ? "Z"
+                        : type == byte.class ? "B"
+                        : type == char.class ? "C" : "S";
+            }
+            return type.isArray() ? internalName(type) : "L" + internalName(type) + ";";
+        }
+
+        private static String methodDescriptor(Class<?> returnType, Class<?>[] params) {
+            StringBuilder sb = new StringBuilder("(");
+            for (Class<?> param : params) {
+                sb.append(descriptor(param));
+            }
+            return sb.append(')').append(descriptor(returnType)).toString();
+        }
+
+        private static int size(Class<?> type) {
+            return type == void.class ? 0 : type == long.class || type == double.class ? 2 : 1;
+        }
+
+        private static int loadOpcode(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return 0x19;
+            }
+            return type == long.class ? 0x16 : type == float.class ? 0x17 : type == double.class ? 0x18 : 0x15;
+        }
+
+        private static int returnOpcode(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return 0xb0;
+            }
+            return type == void.class ? 0xb1
+                    : type == long.class ? 0xad
+                    : type == float.class ? 0xae
+                    : type == double.class ? 0xaf : 0xac;
+        }
+    }
+}
+
+public class GeneratedAdapterExample {
+    // 单方法接口，参数与 Mp4Player.playMp4 一一对应
+    interface FilePlayer {
+        void play(String fileName);
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConsoleOutput.println("=== 运行时生成适配器示例 ===\n");
+
+        ConsoleOutput.println("1. 按方法映射生成 MediaPlayer 适配器:");
+        Map<String, MediaPlayer> players = new LinkedHashMap<>();
+        players.put("mp3", AdapterGenerator.of(MediaPlayer.class, Mp3Player.class)
+                .map("play", "playMp3", 1).build().adapt(new Mp3Player()));
+        AdapterFactory<MediaPlayer> mp4Factory = AdapterGenerator.of(MediaPlayer.class, Mp4Player.class)
+                .map("play", "playMp4", 1).build();
+        players.put("mp4", mp4Factory.adapt(new Mp4Player()));
+        players.put("vlc", AdapterGenerator.of(MediaPlayer.class, VlcPlayer.class)
+                .map("play", "playVlc", 1).build().adapt(new VlcPlayer()));
+        for (Map.Entry<String, MediaPlayer> entry : players.entrySet()) {
+            entry.getValue().play(entry.getKey(), "demo." + entry.getKey());
+        }
+        ConsoleOutput.println("生成方式: " + mp4Factory.getKind()
+                + ", 类名: " + players.get("mp4").getClass().getName());
+
+        ConsoleOutput.println("\n2. 参数一一对应的单方法接口:");
+        AdapterFactory<FilePlayer> fileFactory = AdapterGenerator.of(FilePlayer.class, Mp4Player.class)
+                .map("play", "playMp4").build();
+        fileFactory.adapt(new Mp4Player()).play("lambda.mp4");
+        ConsoleOutput.println("生成方式: " + fileFactory.getKind());
+
+        ConsoleOutput.println("\n3. 映射错误在生成时报告:");
+        try {
+            AdapterGenerator.of(MediaPlayer.class, Mp4Player.class).map("play", "playMp3", 1).build();
+        } catch (IllegalArgumentException e) {
+            ConsoleOutput.println("错误: " + e.getMessage());
+        }
+
+        ConsoleOutput.println("\n4. 调用开销对比 (关闭输出，1000万次调用):");
+        OutputSink previous = ConsoleOutput.setSink(new DirectOutputSink(System.out, OutputLevel.OFF));
+        long handNanos = 0;
+        long generatedNanos = 0;
+        long reflectiveNanos = 0;
+        try {
+            MediaPlayer handWritten = new ObjectAdapter();
+            MediaPlayer generated = players.get("mp4");
+            Method reflective = Mp4Player.class.getMethod("playMp4", String.class);
+            Mp4Player mp4 = new Mp4Player();
+            int calls = 10_000_000;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    handWritten.play("mp4", "movie.mp4");
+                }
+                handNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    generated.play("mp4", "movie.mp4");
+                }
+                generatedNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    reflective.invoke(mp4, "movie.mp4");
+                }
+                reflectiveNanos = System.nanoTime() - start;
+            }
+        } finally {
+            ConsoleOutput.setSink(previous);
+        }
+        // 取最后一轮的结果，输出恢复后再打印
+        ConsoleOutput.println(String.format("手写 ObjectAdapter: %.1fms", handNanos / 1e6));
+        ConsoleOutput.println(String.format("生成的适配器:      %.1fms", generatedNanos / 1e6));
+        ConsoleOutput.println(String.format("Method.invoke:     %.1fms", reflectiveNanos / 1e6));
+    }
+}
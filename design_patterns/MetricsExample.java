@@ -0,0 +1,450 @@
+// Metrics Example - 低开销的计数器与延迟直方图，以装饰器方式接入各个模式组件
+// 记录路径不分配对象：计数用 LongAdder 分段累加，直方图用固定大小的 AtomicLongArray
+
+package designpatterns;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// 分段计数器 - 多线程同时累加时落在不同的 cell 上，避免 CAS 竞争
+class StripedCounter {
+    private final LongAdder adder = new LongAdder();
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+}
+
+// HDR 风格的对数-线性直方图：每个2的幂区间再均分为16个子桶，相对误差约6%
+// 记录的值为纳秒，覆盖 0 ~ Long.MAX_VALUE，不需要预先设定上限
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalSum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    static int indexOf(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = Math.max(0, msb - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // 桶内最大值，用于报告分位数（保守估计）
+    static long highestValueIn(int index) {
+        int shift = Math.max(0, index / SUB_BUCKETS - 1);
+        long upper = index - (long) shift * SUB_BUCKETS + 1;
+        // 最高的桶上界超出 long 范围，截断到 Long.MAX_VALUE
+        if (upper > (Long.MAX_VALUE >> shift)) {
+            return Long.MAX_VALUE;
+        }
+        return (upper << shift) - 1;
+    }
+
+    // 拷贝当前计数，快照之后的统计不受并发写入影响
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalSum.sum(), max.get());
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // quantile 取值 0.0 ~ 1.0
+        public long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
+
+// 指标注册表 - 组件初始化时注册并持有指标引用，热路径上不再查表
+class MetricsRegistry {
+    private final ConcurrentHashMap<String, StripedCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public StripedCounter counter(String name) {
+        return counters.computeIfAbsent(name, key -> {
+            checkName(key);
+            return new StripedCounter();
+        });
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> {
+            checkName(key);
+            return new LatencyHistogram();
+        });
+    }
+
+    // 名称只允许字母开头的 ASCII 字母、数字、'_' 和 '.'：写入 JSON 不需要转义，
+    // 导出 Prometheus 时只需把 '.' 换成 '_'
+    private static void checkName(String name) {
+        boolean valid = !name.isEmpty() && isAsciiLetter(name.charAt(0));
+        for (int i = 1; valid && i < name.length(); i++) {
+            char c = name.charAt(i);
+            valid = isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '_' || c == '.';
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("指标名称只能包含字母、数字、'_' 和 '.'，且以字母开头: " + name);
+        }
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, StripedCounter> entry : new TreeMap<>(counters).entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\":").append(entry.getValue().get());
+        }
+        sb.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            sb.append('"').append(entry.getKey()).append("\":{")
+              .append("\"count\":").append(s.getCount())
+              .append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", s.getMean()))
+              .append(",\"p50\":").append(s.valueAt(0.50))
+              .append(",\"p99\":").append(s.valueAt(0.99))
+              .append(",\"p999\":").append(s.valueAt(0.999))
+              .append(",\"max\":").append(s.getMax())
+              .append('}');
+        }
+        sb.append("}}");
+        return sb.toString();
+    }
+
+    // Prometheus 文本格式：计数器导出为 counter，直方图导出为 summary（单位纳秒）
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder(512);
+        for (Map.Entry<String, StripedCounter> entry : new TreeMap<>(counters).entrySet()) {
+            String name = sanitize(entry.getKey()) + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            String name = sanitize(entry.getKey()) + "_nanoseconds";
+            LatencyHistogram.Snapshot s = entry.getValue().snapshot();
+            sb.append("# TYPE ").append(name).append(" summary\n");
+            sb.append(name).append("{quantile=\"0.5\"} ").append(s.valueAt(0.50)).append('\n');
+            sb.append(name).append("{quantile=\"0.99\"} ").append(s.valueAt(0.99)).append('\n');
+            sb.append(name).append("{quantile=\"0.999\"} ").append(s.valueAt(0.999)).append('\n');
+            sb.append(name).append("_sum ").append(s.getSum()).append('\n');
+            sb.append(name).append("_count ").append(s.getCount()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // 名称已在注册时校验，只需替换 '.'
+    private static String sanitize(String name) {
+        return name.replace('.', '_');
+    }
+}
+
+// 定期把快照写入本地文件，先写临时文件再原子替换，读取方不会看到半个文件
+class MetricsExporter implements AutoCloseable {
+    enum Format {
+        JSON,
+        PROMETHEUS
+    }
+
+    private final MetricsRegistry registry;
+    private final Path target;
+    private final Format format;
+    private final ScheduledExecutorService scheduler;
+    // 定时导出失败的次数记在注册表里，与其他指标一起导出（下一次成功时可见）
+    private final StripedCounter failures;
+
+    public MetricsExporter(MetricsRegistry registry, Path target, Format format, long periodMillis) {
+        this.registry = registry;
+        this.target = target;
+        this.format = format;
+        this.failures = registry.counter("metrics.export." + format.name().toLowerCase(Locale.ROOT) + ".failures");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::exportQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void export() throws IOException {
+        String text = format == Format.JSON ? registry.toJson() : registry.toPrometheus();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void exportQuietly() {
+        try {
+            export();
+        } catch (IOException e) {
+            failures.increment();
+        }
+    }
+
+    // 关闭时再导出一次，保证最后一段时间的数据不丢
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        export();
+    }
+}
+
+// ---------- 各组件的计量装饰器 ----------
+
+class MeteredSubject extends Subject {
+    private final StripedCounter calls;
+    private final LatencyHistogram latency;
+
+    public MeteredSubject(MetricsRegistry registry) {
+        this.calls = registry.counter("subject.notify.calls");
+        this.latency = registry.histogram("subject.notify.latency");
+    }
+
+    @Override
+    public void setState(String state) {
+        long start = System.nanoTime();
+        super.setState(state);
+        latency.record(System.nanoTime() - start);
+        calls.increment();
+    }
+}
+
+class MeteredSortStrategy implements SortStrategy {
+    private final SortStrategy delegate;
+    private final StripedCounter calls;
+    private final LatencyHistogram latency;
+
+    public MeteredSortStrategy(SortStrategy delegate, MetricsRegistry registry, String name) {
+        this.delegate = delegate;
+        this.calls = registry.counter("sorter." + name + ".calls");
+        this.latency = registry.histogram("sorter." + name + ".latency");
+    }
+
+    @Override
+    public void sort(int[] array) {
+        long start = System.nanoTime();
+        delegate.sort(array);
+        latency.record(System.nanoTime() - start);
+        calls.increment();
+    }
+}
+
+class MeteredShapeFactory {
+    private final StripedCounter calls;
+    private final StripedCounter misses;
+    private final LatencyHistogram latency;
+
+    public MeteredShapeFactory(MetricsRegistry registry) {
+        this.calls = registry.counter("shape_factory.calls");
+        this.misses = registry.counter("shape_factory.unknown_type");
+        this.latency = registry.histogram("shape_factory.latency");
+    }
+
+    public Shape getShape(String shapeType) {
+        long start = System.nanoTime();
+        Shape shape = ShapeFactory.getShape(shapeType);
+        latency.record(System.nanoTime() - start);
+        calls.increment();
+        if (shape == null) {
+            misses.increment();
+        }
+        return shape;
+    }
+}
+
+class MeteredShoppingCart extends ShoppingCart {
+    private final StripedCounter checkouts;
+    private final LatencyHistogram latency;
+
+    public MeteredShoppingCart(MetricsRegistry registry) {
+        this.checkouts = registry.counter("cart.checkout.calls");
+        this.latency = registry.histogram("cart.checkout.latency");
+    }
+
+    @Override
+    public void checkout() {
+        long start = System.nanoTime();
+        super.checkout();
+        latency.record(System.nanoTime() - start);
+        checkouts.increment();
+    }
+}
+
+class MeteredMediaPlayer implements MediaPlayer {
+    private final MediaPlayer delegate;
+    private final StripedCounter calls;
+    private final LatencyHistogram latency;
+
+    public MeteredMediaPlayer(MediaPlayer delegate, MetricsRegistry registry, String name) {
+        this.delegate = delegate;
+        this.calls = registry.counter("media_player." + name + ".calls");
+        this.latency = registry.histogram("media_player." + name + ".latency");
+    }
+
+    @Override
+    public void play(String audioType, String fileName) {
+        long start = System.nanoTime();
+        delegate.play(audioType, fileName);
+        latency.record(System.nanoTime() - start);
+        calls.increment();
+    }
+}
+
+public class MetricsExample {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== 指标采集示例 ===\n");
+
+        // 演示期间关闭组件自身的输出，只看指标
+        ConsoleOutput.getSink().setLevel(OutputLevel.OFF);
+
+        MetricsRegistry registry = new MetricsRegistry();
+        Path jsonFile = Files.createTempFile("metrics", ".json");
+        Path promFile = Files.createTempFile("metrics", ".prom");
+        try (MetricsExporter jsonExporter = new MetricsExporter(registry, jsonFile, MetricsExporter.Format.JSON, 1000);
+             MetricsExporter promExporter = new MetricsExporter(registry, promFile, MetricsExporter.Format.PROMETHEUS, 1000)) {
+            // 启动时先各导出一次，目标文件不可写时立即失败，而不是等到第一个周期
+            jsonExporter.export();
+            promExporter.export();
+
+            Subject subject = new MeteredSubject(registry);
+            subject.attach(new ConcreteObserver("Observer 1"));
+            subject.attach(new ConcreteObserver("Observer 2"));
+
+            Sorter sorter = new Sorter();
+            sorter.setStrategy(new MeteredSortStrategy(new QuickSortStrategy(), registry, "quick"));
+
+            MeteredShapeFactory shapeFactory = new MeteredShapeFactory(registry);
+            MediaPlayer player = new MeteredMediaPlayer(new ObjectAdapter(), registry, "object_adapter");
+
+            for (int i = 0; i < 10000; i++) {
+                subject.setState("state-" + i);
+                sorter.sortArray(new int[] {64, 34, 25, 12, 22, 11, 90, i});
+                shapeFactory.getShape(i % 3 == 0 ? "TRIANGLE" : "CIRCLE");
+                player.play("mp3", "song.mp3");
+            }
+            for (int i = 0; i < 100; i++) {
+                ShoppingCart cart = new MeteredShoppingCart(registry);
+                cart.addItem(29.99);
+                cart.setPaymentStrategy(new AlipayStrategy("138****8888"));
+                cart.checkout();
+            }
+        } finally {
+            ConsoleOutput.getSink().setLevel(OutputLevel.INFO);
+        }
+
+        try {
+            registry.counter("订单 数");
+        } catch (IllegalArgumentException e) {
+            System.out.println("错误: " + e.getMessage() + "\n");
+        }
+
+        System.out.println("JSON 快照 (" + jsonFile + "):");
+        System.out.println(new String(Files.readAllBytes(jsonFile), StandardCharsets.UTF_8));
+        System.out.println("\nPrometheus 快照 (" + promFile + ") 前10行:");
+        Files.readAllLines(promFile).stream().limit(10).forEach(System.out::println);
+
+        Files.deleteIfExists(jsonFile);
+        Files.deleteIfExists(promFile);
+    }
+}
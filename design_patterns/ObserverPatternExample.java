@@ -1,10 +1,22 @@
 // Example of Observer Pattern
+
+package designpatterns;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 // Subject
 class Subject {
     private List<Observer> observers = new ArrayList<>();
+    private final ObserverInterestIndex interests = new ObserverInterestIndex();
+    private final ReferenceQueue<Observer> collected = new ReferenceQueue<>();
     private String state;
 
     public void setState(String state) {
@@ -16,10 +28,64 @@ class Subject {
         observers.add(observer);
     }
 
+    // 按内容订阅："order.created" 只接收完全相同的状态，"order.*" 接收以 "order." 开头的状态
+    public void attach(String pattern, Observer observer) {
+        interests.add(pattern, observer);
+    }
+
+    // 按条件订阅：每次通知都要对条件求值，能用键或前缀表达时优先使用上面的方法；状态为 null 时不求值
+    public void attach(Predicate<String> filter, Observer observer) {
+        interests.add(filter, observer);
+    }
+
+    // 弱引用订阅：Subject 不阻止观察者被回收，回收后的订阅在下一次通知前清理
+    // 适合生命周期短、可能忘记 detach 的观察者；调用方需自行持有观察者的强引用
+    public void attachWeak(Observer observer) {
+        observers.add(new WeakObserver(observer, null, collected));
+    }
+
+    public void attachWeak(String pattern, Observer observer) {
+        interests.add(pattern, new WeakObserver(observer, pattern, collected));
+    }
+
+    // 移除该观察者的全部订阅（包括弱引用订阅），不要在 update 中调用
+    public boolean detach(Observer observer) {
+        boolean removed = observers.removeIf(o -> WeakObserver.matches(o, observer));
+        removed |= interests.removeAll(o -> WeakObserver.matches(o, observer));
+        return removed;
+    }
+
+    // 当前订阅数，包括尚未清理的已回收弱引用订阅
+    public int subscriptionCount() {
+        return observers.size() + interests.size();
+    }
+
+    // 没有被回收的引用时只是一次队列 poll；有时按批清理，普通列表只扫描一遍，索引中按模式定位
+    private void purgeCollected() {
+        Reference<? extends Observer> ref = collected.poll();
+        if (ref == null) {
+            return;
+        }
+        Set<Observer> cleared = Collections.newSetFromMap(new IdentityHashMap<>());
+        do {
+            WeakObserver weak = (WeakObserver) ref;
+            if (weak.pattern == null) {
+                cleared.add(weak);
+            } else {
+                interests.remove(weak.pattern, weak);
+            }
+        } while ((ref = collected.poll()) != null);
+        if (!cleared.isEmpty()) {
+            observers.removeIf(cleared::contains);
+        }
+    }
+
     private void notifyObservers() {
+        purgeCollected();
         for (Observer observer : observers) {
             observer.update(state);
         }
+        interests.dispatch(state);
     }
 }
 
@@ -28,6 +94,30 @@ interface Observer {
     void update(String state);
 }
 
+// 弱引用包装 - 观察者被回收后由 ReferenceQueue 通知 Subject 清理
+final class WeakObserver extends WeakReference<Observer> implements Observer {
+    // 订阅模式，普通订阅为 null
+    final String pattern;
+
+    WeakObserver(Observer observer, String pattern, ReferenceQueue<? super Observer> queue) {
+        super(observer, queue);
+        this.pattern = pattern;
+    }
+
+    @Override
+    public void update(String state) {
+        Observer observer = get();
+        if (observer != null) {
+            observer.update(state);
+        }
+    }
+
+    static boolean matches(Observer subscribed, Observer target) {
+        return subscribed == target
+                || (subscribed instanceof WeakObserver && ((WeakObserver) subscribed).get() == target);
+    }
+}
+
 // Concrete Observer
 class ConcreteObserver implements Observer {
     private String name;
@@ -38,12 +128,15 @@ class ConcreteObserver implements Observer {
 
     @Override
     public void update(String state) {
-        System.out.println(name + " received update: " + state);
+        // 输出关闭时不拼接字符串，通知本身不产生分配
+        if (ConsoleOutput.isEnabled(OutputLevel.INFO)) {
+            ConsoleOutput.println(name + " received update: " + state);
+        }
     }
 }
 
 public class ObserverPatternExample {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         Subject subject = new Subject();
 
         Observer observer1 = new ConcreteObserver("Observer 1");
@@ -53,5 +146,20 @@ public class ObserverPatternExample {
         subject.attach(observer2);
 
         subject.setState("State Changed!");
+
+        // 取消订阅
+        subject.detach(observer1);
+        subject.setState("Observer 1 detached");
+
+        // 弱引用订阅：短生命周期的观察者不再需要时无需 detach
+        Subject longLived = new Subject();
+        for (int i = 0; i < 100000; i++) {
+            longLived.attachWeak("session-" + i, new ConcreteObserver("Session " + i));
+        }
+        System.out.println("Subscriptions before GC: " + longLived.subscriptionCount());
+        System.gc();
+        Thread.sleep(100);
+        longLived.setState("tick");
+        System.out.println("Subscriptions after GC: " + longLived.subscriptionCount());
     }
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+// Off-Heap Sort Example - 在堆外内存中排序 int 键，数据不进入 Java 堆
+// JDK 17 中 MemorySegment 仍处于孵化阶段，这里使用直接缓冲区/内存映射文件实现同样的效果
+
+package designpatterns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+// 堆外 int 数组 - 单个 ByteBuffer 最多 2GB，因此按固定大小分段，用 long 下标寻址
+final class OffHeapIntArray {
+    // 默认每段 2^28 个 int，即 1GB
+    static final int DEFAULT_SEGMENT_SHIFT = 28;
+    // 再大一段的字节数 2^29 * 4 就超出 int，ByteBuffer 无法容纳
+    static final int MAX_SEGMENT_SHIFT = 28;
+
+    private final IntBuffer[] segments;
+    private final int shift;
+    private final int mask;
+    private final long length;
+
+    private OffHeapIntArray(IntBuffer[] segments, int shift, long length) {
+        this.segments = segments;
+        this.shift = shift;
+        this.mask = (1 << shift) - 1;
+        this.length = length;
+    }
+
+    // 直接内存：受 -XX:MaxDirectMemorySize 限制，缓冲区不可达后由 Cleaner 释放
+    public static OffHeapIntArray allocateDirect(long length) {
+        return allocateDirect(length, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    static OffHeapIntArray allocateDirect(long length, int segmentShift) {
+        if (segmentShift < 0 || segmentShift > MAX_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("段大小位数应在 0 到 " + MAX_SEGMENT_SHIFT + " 之间: " + segmentShift);
+        }
+        int segmentCount = segmentCount(length, segmentShift);
+        IntBuffer[] segments = new IntBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int ints = segmentLength(length, segmentShift, i);
+            segments[i] = ByteBuffer.allocateDirect(Math.multiplyExact(ints, 4)).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return new OffHeapIntArray(segments, segmentShift, length);
+    }
+
+    // 内存映射文件：由操作系统页缓存承载，可超过物理内存，排序结果直接落盘
+    // 文件内容按大端 int32 解释，与 ExternalSortExample 的文件格式一致
+    public static OffHeapIntArray map(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            int segmentCount = segmentCount(length, DEFAULT_SEGMENT_SHIFT);
+            IntBuffer[] segments = new IntBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                int ints = segmentLength(length, DEFAULT_SEGMENT_SHIFT, i);
+                long position = ((long) i << DEFAULT_SEGMENT_SHIFT) * 4;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) ints * 4)
+                                     .order(ByteOrder.BIG_ENDIAN)
+                                     .asIntBuffer();
+            }
+            // 映射建立后关闭通道不影响映射区
+            return new OffHeapIntArray(segments, DEFAULT_SEGMENT_SHIFT, length);
+        }
+    }
+
+    private static int segmentCount(long length, int shift) {
+        if (length < 0) {
+            throw new IllegalArgumentException("长度不能为负: " + length);
+        }
+        return (int) ((length + (1L << shift) - 1) >>> shift);
+    }
+
+    private static int segmentLength(long length, int shift, int segment) {
+        return (int) Math.min(1L << shift, length - ((long) segment << shift));
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int get(long index) {
+        return segments[(int) (index >>> shift)].get((int) (index & mask));
+    }
+
+    public void set(long index, int value) {
+        segments[(int) (index >>> shift)].put((int) (index & mask), value);
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    // 返回第 i 段的只读视图，与底层内存共享，不发生拷贝
+    public IntBuffer segment(int i) {
+        return segments[i].asReadOnlyBuffer();
+    }
+
+    IntBuffer writableSegment(int i) {
+        return segments[i];
+    }
+
+    int segmentShift() {
+        return shift;
+    }
+}
+
+// 堆外排序策略 - 区间跨段时按 long 下标做快速排序，区间落在同一段后改用段内 int 下标排序
+class OffHeapSortStrategy implements SortStrategy {
+    private static final int INSERTION_THRESHOLD = 24;
+
+    // 兼容 SortStrategy 接口：小数组拷贝到堆外排序后拷回，真正的大数据应直接使用 sort(OffHeapIntArray)
+    @Override
+    public void sort(int[] array) {
+        OffHeapIntArray offHeap = OffHeapIntArray.allocateDirect(array.length);
+        for (int i = 0; i < array.length; i++) {
+            offHeap.set(i, array[i]);
+        }
+        sort(offHeap);
+        for (int i = 0; i < array.length; i++) {
+            array[i] = offHeap.get(i);
+        }
+    }
+
+    public void sort(OffHeapIntArray array) {
+        sort(array, 0, array.length() - 1);
+    }
+
+    private void sort(OffHeapIntArray a, long low, long high) {
+        int shift = a.segmentShift();
+        while (high - low > INSERTION_THRESHOLD) {
+            if ((low >>> shift) == (high >>> shift)) {
+                long base = (low >>> shift) << shift;
+                sortSegment(a.writableSegment((int) (low >>> shift)), (int) (low - base), (int) (high - base));
+                return;
+            }
+            long mid = (low + high) >>> 1;
+            int pivot = medianOfThree(a.get(low), a.get(mid), a.get(high));
+            long i = low;
+            long j = high;
+            while (i <= j) {
+                while (a.get(i) < pivot) {
+                    i++;
+                }
+                while (a.get(j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = a.get(i);
+                    a.set(i, a.get(j));
+                    a.set(j, t);
+                    i++;
+                    j--;
+                }
+            }
+            if (j - low < high - i) {
+                sort(a, low, j);
+                low = i;
+            } else {
+                sort(a, i, high);
+                high = j;
+            }
+        }
+        for (long i = low + 1; i <= high; i++) {
+            int v = a.get(i);
+            long j = i - 1;
+            while (j >= low && a.get(j) > v) {
+                a.set(j + 1, a.get(j));
+                j--;
+            }
+            a.set(j + 1, v);
+        }
+    }
+
+    private static void sortSegment(IntBuffer a, int low, int high) {
+        while (high - low > INSERTION_THRESHOLD) {
+            int mid = (low + high) >>> 1;
+            int pivot = medianOfThree(a.get(low), a.get(mid), a.get(high));
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (a.get(i) < pivot) {
+                    i++;
+                }
+                while (a.get(j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = a.get(i);
+                    a.put(i, a.get(j));
+                    a.put(j, t);
+                    i++;
+                    j--;
+                }
+            }
+            if (j - low < high - i) {
+                sortSegment(a, low, j);
+                low = i;
+            } else {
+                sortSegment(a, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            int v = a.get(i);
+            int j = i - 1;
+            while (j >= low && a.get(j) > v) {
+                a.put(j + 1, a.get(j));
+                j--;
+            }
+            a.put(j + 1, v);
+        }
+    }
+
+    private static int medianOfThree(int a, int b, int c) {
+        return a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+    }
+}
+
+public class OffHeapSortExample {
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== 堆外排序示例 ===\n");
+
+        int n = 20_000_000;
+        Random random = new Random(42);
+        int[] heapCopy = new int[n];
+        OffHeapIntArray keys = OffHeapIntArray.allocateDirect(n);
+        for (int i = 0; i < n; i++) {
+            int value = random.nextInt();
+            keys.set(i, value);
+            heapCopy[i] = value;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        new OffHeapSortStrategy().sort(keys);
+        long offHeapNanos = System.nanoTime() - start;
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        start = System.nanoTime();
+        Arrays.sort(heapCopy);
+        long heapNanos = System.nanoTime() - start;
+
+        boolean same = true;
+        for (int i = 0; i < n; i += 997) {
+            same &= keys.get(i) == heapCopy[i];
+        }
+        System.out.printf("堆外排序 %d 个键: %.1fms, 排序期间堆占用变化: %dKB%n",
+                n, offHeapNanos / 1e6, (heapAfter - heapBefore) / 1024);
+        System.out.printf("堆内 Arrays.sort: %.1fms%n", heapNanos / 1e6);
+        System.out.println("结果一致: " + same);
+
+        // 排序结果以只读视图返回，不拷贝
+        IntBuffer sorted = keys.segment(0);
+        System.out.println("最小的3个键: " + sorted.get(0) + ", " + sorted.get(1) + ", " + sorted.get(2));
+
+        System.out.println("\n内存映射文件排序:");
+        Path file = Files.createTempFile("keys", ".bin");
+        try {
+            OffHeapIntArray mapped = OffHeapIntArray.map(file, 1_000_000);
+            for (long i = 0; i < mapped.length(); i++) {
+                mapped.set(i, random.nextInt(1000));
+            }
+            new OffHeapSortStrategy().sort(mapped);
+            System.out.println("文件大小: " + Files.size(file) / 1024 + "KB, 首尾键: "
+                    + mapped.get(0) + " .. " + mapped.get(mapped.length() - 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
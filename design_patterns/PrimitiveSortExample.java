@@ -0,0 +1,352 @@
+// Primitive Sort Example - long[]/double[] 专用排序策略与按键提取的对象排序
+// 避免把 long/double 装箱成 List<Long>/List<Double> 再用 Comparator 排序
+
+package designpatterns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+// long[] 排序策略
+interface LongSortStrategy {
+    void sort(long[] array);
+}
+
+// double[] 排序策略，顺序与 Double.compare 一致：-0.0 < 0.0，NaN 排在最后
+interface DoubleSortStrategy {
+    void sort(double[] array);
+}
+
+// 对象数组排序策略
+interface ObjectSortStrategy<T> {
+    void sort(T[] array);
+}
+
+// 原始类型快速排序的公共实现：三数取中 + 小区间插入排序 + 只对较小一侧递归
+final class PrimitiveSorts {
+    private static final int INSERTION_THRESHOLD = 24;
+
+    private PrimitiveSorts() {
+    }
+
+    static void sort(long[] a, int low, int high) {
+        while (high - low > INSERTION_THRESHOLD) {
+            int mid = (low + high) >>> 1;
+            long pivot = medianOfThree(a[low], a[mid], a[high]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    long t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (j - low < high - i) {
+                sort(a, low, j);
+                low = i;
+            } else {
+                sort(a, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            long v = a[i];
+            int j = i - 1;
+            while (j >= low && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+
+    // 调用前需保证区间内没有 NaN
+    static void sort(double[] a, int low, int high) {
+        while (high - low > INSERTION_THRESHOLD) {
+            int mid = (low + high) >>> 1;
+            double pivot = medianOfThree(a[low], a[mid], a[high]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double t = a[i];
+                    a[i] = a[j];
+                    a[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (j - low < high - i) {
+                sort(a, low, j);
+                low = i;
+            } else {
+                sort(a, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            double v = a[i];
+            int j = i - 1;
+            while (j >= low && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+
+    // 按 keys 排序，同时移动 index；键相同时按 index 排序，因此结果是稳定的
+    static void sortByKey(long[] keys, int[] index, int low, int high) {
+        while (high - low > INSERTION_THRESHOLD) {
+            int mid = (low + high) >>> 1;
+            long pivotKey = keys[mid];
+            int pivotIndex = index[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivotKey || (keys[i] == pivotKey && index[i] < pivotIndex)) {
+                    i++;
+                }
+                while (keys[j] > pivotKey || (keys[j] == pivotKey && index[j] > pivotIndex)) {
+                    j--;
+                }
+                if (i <= j) {
+                    long tk = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = tk;
+                    int ti = index[i];
+                    index[i] = index[j];
+                    index[j] = ti;
+                    i++;
+                    j--;
+                }
+            }
+            if (j - low < high - i) {
+                sortByKey(keys, index, low, j);
+                low = i;
+            } else {
+                sortByKey(keys, index, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            long k = keys[i];
+            int v = index[i];
+            int j = i - 1;
+            while (j >= low && (keys[j] > k || (keys[j] == k && index[j] > v))) {
+                keys[j + 1] = keys[j];
+                index[j + 1] = index[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            index[j + 1] = v;
+        }
+    }
+
+    // 把 double 映射为保序的 long：负数翻转除符号位以外的位，NaN 统一为最大值
+    static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static long medianOfThree(long a, long b, long c) {
+        return a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+    }
+}
+
+class LongQuickSortStrategy implements LongSortStrategy {
+    @Override
+    public void sort(long[] array) {
+        PrimitiveSorts.sort(array, 0, array.length - 1);
+    }
+}
+
+class DoubleQuickSortStrategy implements DoubleSortStrategy {
+    @Override
+    public void sort(double[] array) {
+        // 1. NaN 移到末尾，剩余部分可以直接用 < 比较
+        int end = array.length;
+        for (int i = end - 1; i >= 0; i--) {
+            if (array[i] != array[i]) {
+                double nan = array[i];
+                array[i] = array[--end];
+                array[end] = nan;
+            }
+        }
+        // 2. 快速排序
+        PrimitiveSorts.sort(array, 0, end - 1);
+        // 3. < 认为 -0.0 == 0.0，这里把零值区间内的 -0.0 调整到前面
+        int zeroStart = lowerBound(array, end, 0.0);
+        int negativeZeros = 0;
+        int zeroEnd = zeroStart;
+        while (zeroEnd < end && array[zeroEnd] == 0.0) {
+            if (Double.doubleToRawLongBits(array[zeroEnd]) < 0) {
+                negativeZeros++;
+            }
+            zeroEnd++;
+        }
+        for (int i = zeroStart; i < zeroEnd; i++) {
+            array[i] = i < zeroStart + negativeZeros ? -0.0 : 0.0;
+        }
+    }
+
+    private static int lowerBound(double[] array, int end, double key) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
+
+// 按 long 键排序对象：每个元素只调用一次键提取函数，排序时只比较原始类型
+class LongKeySortStrategy<T> implements ObjectSortStrategy<T> {
+    private final ToLongFunction<? super T> keyExtractor;
+
+    public LongKeySortStrategy(ToLongFunction<? super T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public void sort(T[] array) {
+        long[] keys = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            keys[i] = keyExtractor.applyAsLong(array[i]);
+        }
+        KeyedReorder.apply(array, keys);
+    }
+}
+
+// 按 double 键排序对象，键先转换为保序的 long
+class DoubleKeySortStrategy<T> implements ObjectSortStrategy<T> {
+    private final ToDoubleFunction<? super T> keyExtractor;
+
+    public DoubleKeySortStrategy(ToDoubleFunction<? super T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public void sort(T[] array) {
+        long[] keys = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            keys[i] = PrimitiveSorts.sortableBits(keyExtractor.applyAsDouble(array[i]));
+        }
+        KeyedReorder.apply(array, keys);
+    }
+}
+
+// 元素本身可比较时直接使用 TimSort（稳定、对部分有序数据友好）
+class ComparableSortStrategy<T extends Comparable<? super T>> implements ObjectSortStrategy<T> {
+    @Override
+    public void sort(T[] array) {
+        Arrays.sort(array);
+    }
+}
+
+final class KeyedReorder {
+    private KeyedReorder() {
+    }
+
+    static <T> void apply(T[] array, long[] keys) {
+        int[] index = new int[array.length];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = i;
+        }
+        PrimitiveSorts.sortByKey(keys, index, 0, array.length - 1);
+        T[] copy = array.clone();
+        for (int i = 0; i < array.length; i++) {
+            array[i] = copy[index[i]];
+        }
+    }
+}
+
+public class PrimitiveSortExample {
+    // 演示用的订单：时间戳 + 价格
+    static final class Order {
+        final long timestamp;
+        final double price;
+
+        Order(long timestamp, double price) {
+            this.timestamp = timestamp;
+            this.price = price;
+        }
+
+        @Override
+        public String toString() {
+            return "Order(" + timestamp + ", " + price + ")";
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== 原始类型排序策略示例 ===\n");
+
+        System.out.println("1. double[] 排序 (NaN 与 -0.0):");
+        double[] prices = {3.5, Double.NaN, 0.0, -1.25, -0.0, 2.0, Double.NEGATIVE_INFINITY, 0.0, -0.0};
+        new DoubleQuickSortStrategy().sort(prices);
+        System.out.println(Arrays.toString(prices));
+
+        System.out.println("\n2. 按键提取排序对象:");
+        Order[] orders = {new Order(300, 9.9), new Order(100, 19.9), new Order(200, 9.9)};
+        new DoubleKeySortStrategy<Order>(order -> order.price).sort(orders);
+        System.out.println("按价格: " + Arrays.toString(orders));
+        new LongKeySortStrategy<Order>(order -> order.timestamp).sort(orders);
+        System.out.println("按时间: " + Arrays.toString(orders));
+
+        System.out.println("\n3. 性能对比 (200万个 long 时间戳):");
+        int n = 2_000_000;
+        Random random = new Random(42);
+        long[] timestamps = new long[n];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1_700_000_000_000L + random.nextInt(1_000_000_000);
+        }
+        for (int round = 0; round < 3; round++) {
+            List<Long> boxed = new ArrayList<>(n);
+            for (long t : timestamps) {
+                boxed.add(t);
+            }
+            long start = System.nanoTime();
+            Collections.sort(boxed, Long::compare);
+            long boxedNanos = System.nanoTime() - start;
+
+            long[] copy = timestamps.clone();
+            start = System.nanoTime();
+            new LongQuickSortStrategy().sort(copy);
+            long primitiveNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.printf("List<Long> + Comparator: %.1fms%n", boxedNanos / 1e6);
+                System.out.printf("LongQuickSortStrategy:   %.1fms%n", primitiveNanos / 1e6);
+                System.out.println("结果一致: " + (boxed.get(n / 2) == copy[n / 2]));
+            }
+        }
+    }
+}
@@ -0,0 +1,592 @@
+// Product Codec Example - Computer/House/Meal 的紧凑二进制编码
+// 按 schema 编码：每条记录只有 schema 编号、字段存在位图和字符串的字典下标（均为 varint），
+// 字符串在批次末尾的字典中只出现一次。读取时直接在 ByteBuffer 上按需解析字段，不构造完整对象
+
+package designpatterns;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// 无符号 LEB128 变长整数：每字节7位数据，最高位表示后面还有字节
+final class Varints {
+    private Varints() {
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer, int position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("变长整数过长");
+    }
+
+    static int getVarInt(ByteBuffer buffer, int position) {
+        return Math.toIntExact(getVarLong(buffer, position));
+    }
+
+    // 跳过一个变长整数，返回下一个位置
+    static int skip(ByteBuffer buffer, int position) {
+        while (buffer.get(position++) < 0) {
+            // 继续读取
+        }
+        return position;
+    }
+
+    static int size(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
+
+// 产品 schema：字段为可空字符串或布尔值，布尔值只占存在位图中的一位
+final class ProductSchema<T> {
+    enum FieldKind {
+        STRING,
+        BOOLEAN
+    }
+
+    private final int id;
+    private final Class<T> type;
+    private final String[] names;
+    private final FieldKind[] kinds;
+    // 与字段一一对应，另一种类型的位置为 null
+    private final List<Function<T, String>> stringGetters;
+    private final List<Predicate<T>> booleanGetters;
+    private final Function<ProductView, T> decoder;
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private ProductSchema(Builder<T> builder) {
+        this.id = builder.id;
+        this.type = builder.type;
+        this.names = builder.names.toArray(new String[0]);
+        this.kinds = builder.kinds.toArray(new FieldKind[0]);
+        this.stringGetters = new ArrayList<>(builder.stringGetters);
+        this.booleanGetters = new ArrayList<>(builder.booleanGetters);
+        this.decoder = builder.decoder;
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    public String getFieldName(int field) {
+        return names[field];
+    }
+
+    FieldKind getKind(int field) {
+        return kinds[field];
+    }
+
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException(type.getSimpleName() + " 没有字段: " + name);
+        }
+        return index;
+    }
+
+    String getString(T product, int field) {
+        return stringGetters.get(field).apply(product);
+    }
+
+    boolean getBoolean(T product, int field) {
+        return booleanGetters.get(field).test(product);
+    }
+
+    T decode(ProductView view) {
+        return decoder.apply(view);
+    }
+
+    public static <T> Builder<T> builder(int id, Class<T> type) {
+        return new Builder<>(id, type);
+    }
+
+    public static class Builder<T> {
+        private final int id;
+        private final Class<T> type;
+        private final List<String> names = new ArrayList<>();
+        private final List<FieldKind> kinds = new ArrayList<>();
+        private final List<Function<T, String>> stringGetters = new ArrayList<>();
+        private final List<Predicate<T>> booleanGetters = new ArrayList<>();
+        private Function<ProductView, T> decoder;
+
+        private Builder(int id, Class<T> type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public Builder<T> addString(String name, Function<T, String> getter) {
+            names.add(name);
+            kinds.add(FieldKind.STRING);
+            stringGetters.add(getter);
+            booleanGetters.add(null);
+            return this;
+        }
+
+        public Builder<T> addBoolean(String name, Predicate<T> getter) {
+            names.add(name);
+            kinds.add(FieldKind.BOOLEAN);
+            stringGetters.add(null);
+            booleanGetters.add(getter);
+            return this;
+        }
+
+        // 从视图还原完整对象
+        public Builder<T> setDecoder(Function<ProductView, T> decoder) {
+            this.decoder = decoder;
+            return this;
+        }
+
+        public ProductSchema<T> build() {
+            if (names.size() > 63) {
+                throw new IllegalArgumentException("字段数不能超过63: " + names.size());
+            }
+            if (decoder == null) {
+                throw new IllegalArgumentException("缺少解码函数: " + type.getName());
+            }
+            return new ProductSchema<>(this);
+        }
+    }
+}
+
+// 内置 schema，编号写入数据，发布后不能修改已有字段的顺序
+final class ProductSchemas {
+    static final ProductSchema<Computer> COMPUTER = ProductSchema.builder(1, Computer.class)
+            .addString("cpu", Computer::getCpu)
+            .addString("ram", Computer::getRam)
+            .addString("storage", Computer::getStorage)
+            .addString("graphicsCard", Computer::getGraphicsCard)
+            .addString("coolingSystem", Computer::getCoolingSystem)
+            .addString("motherboard", Computer::getMotherboard)
+            .setDecoder(view -> new Computer.Builder(view.getString(0), view.getString(1))
+                    .setStorage(view.getString(2))
+                    .setGraphicsCard(view.getString(3))
+                    .setCoolingSystem(view.getString(4))
+                    .setMotherboard(view.getString(5))
+                    .build())
+            .build();
+
+    static final ProductSchema<House> HOUSE = ProductSchema.builder(2, House.class)
+            .addString("foundation", House::getFoundation)
+            .addString("structure", House::getStructure)
+            .addString("roof", House::getRoof)
+            .addBoolean("hasGarage", House::hasGarage)
+            .addBoolean("hasSwimmingPool", House::hasSwimmingPool)
+            .addString("interiorDesign", House::getInteriorDesign)
+            .setDecoder(view -> new House.HouseBuilder()
+                    .setFoundation(view.getString(0))
+                    .setStructure(view.getString(1))
+                    .setRoof(view.getString(2))
+                    .setHasGarage(view.getBoolean(3))
+                    .setHasSwimmingPool(view.getBoolean(4))
+                    .setInteriorDesign(view.getString(5))
+                    .build())
+            .build();
+
+    static final ProductSchema<Meal> MEAL = ProductSchema.builder(3, Meal.class)
+            .addString("burger", Meal::getBurger)
+            .addString("drink", Meal::getDrink)
+            .addString("dessert", Meal::getDessert)
+            .setDecoder(view -> {
+                Meal meal = new Meal();
+                meal.setBurger(view.getString(0));
+                meal.setDrink(view.getString(1));
+                meal.setDessert(view.getString(2));
+                return meal;
+            })
+            .build();
+
+    private static final ProductSchema<?>[] BY_ID = {null, COMPUTER, HOUSE, MEAL};
+
+    private ProductSchemas() {
+    }
+
+    static ProductSchema<?> byId(int id) {
+        if (id <= 0 || id >= BY_ID.length) {
+            throw new IllegalArgumentException("未知的 schema 编号: " + id);
+        }
+        return BY_ID[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ProductSchema<T> forType(Class<T> type) {
+        for (int id = 1; id < BY_ID.length; id++) {
+            if (BY_ID[id].getType() == type) {
+                return (ProductSchema<T>) BY_ID[id];
+            }
+        }
+        throw new IllegalArgumentException("没有 schema: " + type.getName());
+    }
+}
+
+// 批次编码器，可反复使用：reset 后复用内部缓冲与字典，稳定后编码过程只在出现新字符串时分配内存
+// 批次格式：魔数 | 记录... | 字典（条数，每条为长度+UTF-8字节） | 记录偏移表(int32...) | 记录数、字典偏移、偏移表偏移(int32 x3)
+final class ProductEncoder {
+    static final int MAGIC = 0x50434231;
+    static final int TRAILER_SIZE = 12;
+
+    private ByteBuffer buffer;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private int[] offsets = new int[64];
+    private int count;
+
+    public ProductEncoder(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(Math.max(64, initialCapacity));
+        reset();
+    }
+
+    public ProductEncoder reset() {
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        dictionary.clear();
+        strings.clear();
+        count = 0;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> ProductEncoder encode(T product) {
+        return encode(ProductSchemas.forType((Class<T>) product.getClass()), product);
+    }
+
+    public <T> ProductEncoder encode(ProductSchema<T> schema, T product) {
+        int fields = schema.getFieldCount();
+        long presence = 0;
+        for (int field = 0; field < fields; field++) {
+            boolean present = schema.getKind(field) == ProductSchema.FieldKind.BOOLEAN
+                    ? schema.getBoolean(product, field)
+                    : schema.getString(product, field) != null;
+            if (present) {
+                presence |= 1L << field;
+            }
+        }
+        // 最长情况：schema 编号 + 位图 + 每个字段一个下标
+        ensureCapacity(5 + 10 + fields * 5);
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = buffer.position();
+        Varints.putVarLong(buffer, schema.getId());
+        Varints.putVarLong(buffer, presence);
+        for (int field = 0; field < fields; field++) {
+            if ((presence & (1L << field)) != 0 && schema.getKind(field) == ProductSchema.FieldKind.STRING) {
+                Varints.putVarLong(buffer, intern(schema.getString(product, field)));
+            }
+        }
+        return this;
+    }
+
+    private int intern(String value) {
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(value, index);
+            strings.add(value);
+        }
+        return index;
+    }
+
+    // 写出字典、偏移表和尾部，返回只包含本批次数据的视图（与内部缓冲共享，下次 reset 前有效）
+    public ByteBuffer finish() {
+        int dictionaryOffset = buffer.position();
+        ensureCapacity(5);
+        Varints.putVarLong(buffer, strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(5 + bytes.length);
+            Varints.putVarLong(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+        int offsetsOffset = buffer.position();
+        ensureCapacity(count * 4 + TRAILER_SIZE);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(offsets[i]);
+        }
+        buffer.putInt(count).putInt(dictionaryOffset).putInt(offsetsOffset);
+        ByteBuffer result = buffer.duplicate();
+        result.flip();
+        return result;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
+
+// 批次读取器 - 只校验尾部并建立字典偏移表，字符串在首次访问时才解码
+final class ProductBatchReader {
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int offsetsOffset;
+    private final int[] stringOffsets;
+    private final String[] strings;
+
+    public ProductBatchReader(ByteBuffer data) {
+        this.buffer = data.slice();
+        int limit = buffer.limit();
+        if (limit < 4 + ProductEncoder.TRAILER_SIZE || buffer.getInt(0) != ProductEncoder.MAGIC) {
+            throw new IllegalArgumentException("不是产品批次数据");
+        }
+        this.count = buffer.getInt(limit - 12);
+        int dictionaryOffset = buffer.getInt(limit - 8);
+        this.offsetsOffset = buffer.getInt(limit - 4);
+        if (count < 0 || offsetsOffset + (long) count * 4 != limit - ProductEncoder.TRAILER_SIZE
+                || dictionaryOffset < 4 || dictionaryOffset > offsetsOffset) {
+            throw new IllegalArgumentException("批次尾部损坏");
+        }
+        int size = Varints.getVarInt(buffer, dictionaryOffset);
+        int position = Varints.skip(buffer, dictionaryOffset);
+        stringOffsets = new int[size];
+        for (int i = 0; i < size; i++) {
+            stringOffsets[i] = position;
+            int length = Varints.getVarInt(buffer, position);
+            position = Varints.skip(buffer, position) + length;
+            if (position > offsetsOffset) {
+                throw new BufferUnderflowException();
+            }
+        }
+        strings = new String[size];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    int recordOffset(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("记录下标越界: " + index + "，共 " + count + " 条");
+        }
+        return buffer.getInt(offsetsOffset + index * 4);
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    String string(int index) {
+        String value = strings[index];
+        if (value == null) {
+            int position = stringOffsets[index];
+            int length = Varints.getVarInt(buffer, position);
+            position = Varints.skip(buffer, position);
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    // 可复用的视图，moveTo 切换到另一条记录
+    public ProductView view() {
+        return new ProductView(this);
+    }
+
+    public Object get(int index) {
+        return view().moveTo(index).toProduct();
+    }
+}
+
+// 单条记录的视图 - 只解析被访问的字段
+final class ProductView {
+    private final ProductBatchReader reader;
+    private ProductSchema<?> schema;
+    private long presence;
+    private int fieldsStart;
+
+    ProductView(ProductBatchReader reader) {
+        this.reader = reader;
+    }
+
+    public ProductView moveTo(int index) {
+        ByteBuffer buffer = reader.buffer();
+        int position = reader.recordOffset(index);
+        schema = ProductSchemas.byId(Varints.getVarInt(buffer, position));
+        position = Varints.skip(buffer, position);
+        presence = Varints.getVarLong(buffer, position);
+        fieldsStart = Varints.skip(buffer, position);
+        return this;
+    }
+
+    public ProductSchema<?> getSchema() {
+        return schema;
+    }
+
+    public boolean isPresent(int field) {
+        return (presence & (1L << field)) != 0;
+    }
+
+    public boolean getBoolean(int field) {
+        checkKind(field, ProductSchema.FieldKind.BOOLEAN);
+        return isPresent(field);
+    }
+
+    public String getString(String name) {
+        return getString(schema.indexOf(name));
+    }
+
+    // 跳过前面已出现的字符串字段（每个只是一个很短的 varint），不解码其他字段
+    public String getString(int field) {
+        checkKind(field, ProductSchema.FieldKind.STRING);
+        if (!isPresent(field)) {
+            return null;
+        }
+        ByteBuffer buffer = reader.buffer();
+        int position = fieldsStart;
+        for (int i = 0; i < field; i++) {
+            if (isPresent(i) && schema.getKind(i) == ProductSchema.FieldKind.STRING) {
+                position = Varints.skip(buffer, position);
+            }
+        }
+        return reader.string(Varints.getVarInt(buffer, position));
+    }
+
+    public Object toProduct() {
+        return schema.decode(this);
+    }
+
+    private void checkKind(int field, ProductSchema.FieldKind kind) {
+        if (schema.getKind(field) != kind) {
+            throw new IllegalArgumentException(schema.getType().getSimpleName() + " 的字段 "
+                    + schema.getFieldName(field) + " 不是 " + kind + " 类型");
+        }
+    }
+}
+
+public class ProductCodecExample {
+    private static final String[] CPUS = {"Intel i5", "Intel i7", "Intel i9", "AMD Ryzen 7", "Apple M3"};
+    private static final String[] RAMS = {"8GB", "16GB", "32GB", "64GB"};
+    private static final String[] STORAGES = {null, "512GB SSD", "1TB SSD", "2TB HDD"};
+    private static final String[] ROOFS = {"瓦片屋顶", "平屋顶", "玻璃屋顶"};
+
+    private static Object randomProduct(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return new Computer.Builder(CPUS[random.nextInt(CPUS.length)], RAMS[random.nextInt(RAMS.length)])
+                        .setStorage(STORAGES[random.nextInt(STORAGES.length)])
+                        .setGraphicsCard(random.nextBoolean() ? "RTX 4070" : null)
+                        .build();
+            case 1:
+                return new House.HouseBuilder()
+                        .setFoundation("混凝土地基")
+                        .setStructure(random.nextBoolean() ? "木结构" : "钢筋混凝土结构")
+                        .setRoof(ROOFS[random.nextInt(ROOFS.length)])
+                        .setHasGarage(random.nextBoolean())
+                        .setHasSwimmingPool(random.nextInt(10) == 0)
+                        .build();
+            default:
+                MealBuilder builder = random.nextBoolean() ? new VegMealBuilder() : new NonVegMealBuilder();
+                builder.buildBurger();
+                builder.buildDrink();
+                if (random.nextBoolean()) {
+                    builder.buildDessert();
+                }
+                return builder.getMeal();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=== 产品二进制编码示例 ===\n");
+
+        Computer computer = new Computer.Builder("Intel i9", "64GB").setStorage("2TB SSD").build();
+        ByteBuffer single = new ProductEncoder(256).encode(computer).finish();
+        ProductBatchReader singleReader = new ProductBatchReader(single);
+        System.out.println("单个 Computer 编码 " + single.remaining() + " 字节，toString() 为 "
+                + computer.toString().getBytes(StandardCharsets.UTF_8).length + " 字节");
+        System.out.println("解码后相等: " + computer.equals(singleReader.get(0)));
+
+        System.out.println("\n批量编码 (100万个混合产品):");
+        int n = 1_000_000;
+        Random random = new Random(42);
+        Object[] products = new Object[n];
+        long textBytes = 0;
+        for (int i = 0; i < n; i++) {
+            products[i] = randomProduct(random);
+            textBytes += products[i].toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        ProductEncoder encoder = new ProductEncoder(1 << 20);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            encoder.reset();
+            for (Object product : products) {
+                encoder.encode(product);
+            }
+            ByteBuffer batch = encoder.finish();
+            long encodeNanos = System.nanoTime() - start;
+
+            // 只访问 cpu 字段统计，不构造对象
+            start = System.nanoTime();
+            ProductBatchReader reader = new ProductBatchReader(batch);
+            ProductView view = reader.view();
+            int cpuField = ProductSchemas.COMPUTER.indexOf("cpu");
+            int i9 = 0;
+            for (int i = 0; i < reader.size(); i++) {
+                view.moveTo(i);
+                if (view.getSchema() == ProductSchemas.COMPUTER && "Intel i9".equals(view.getString(cpuField))) {
+                    i9++;
+                }
+            }
+            long lazyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int decodedI9 = 0;
+            for (int i = 0; i < reader.size(); i++) {
+                Object product = reader.get(i);
+                if (product instanceof Computer && "Intel i9".equals(((Computer) product).getCpu())) {
+                    decodedI9++;
+                }
+            }
+            long fullNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.printf("编码: %.1fms, %d 字节 (toString 文本 %d 字节, %.1f%%)%n", encodeNanos / 1e6,
+                        batch.remaining(), textBytes, 100.0 * batch.remaining() / textBytes);
+                System.out.printf("按需读取 cpu 字段: %.1fms, Intel i9 共 %d 台%n", lazyNanos / 1e6, i9);
+                System.out.printf("完整解码每个对象: %.1fms, 结果一致: %b%n", fullNanos / 1e6, i9 == decodedI9);
+            }
+        }
+    }
+}
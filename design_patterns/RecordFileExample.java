@@ -0,0 +1,529 @@
+// Record File Example - 定长记录 + FileChannel/MappedByteBuffer 批量读写
+// 对比 StreamDecoratorExample 中 DataOutputStream -> BufferedOutputStream -> FileOutputStream 的逐字段写法
+
+package designpatterns;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// 字段类型 - 每种类型占用固定字节数
+enum RecordFieldType {
+    INT(4),
+    LONG(8),
+    DOUBLE(8),
+    STRING(0); // 字符串宽度由 schema 指定：2字节长度 + 定长内容
+
+    private final int fixedSize;
+
+    RecordFieldType(int fixedSize) {
+        this.fixedSize = fixedSize;
+    }
+
+    public int getFixedSize() {
+        return fixedSize;
+    }
+}
+
+// 定长记录结构 - 每条记录大小相同，因此可以按下标直接定位
+class RecordSchema {
+    private final String[] names;
+    private final RecordFieldType[] types;
+    private final int[] offsets;
+    private final int[] widths;
+    private final int recordSize;
+
+    private RecordSchema(Builder builder) {
+        int count = builder.names.size();
+        this.names = builder.names.toArray(new String[0]);
+        this.types = builder.types.toArray(new RecordFieldType[0]);
+        this.offsets = new int[count];
+        this.widths = new int[count];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            widths[i] = builder.widths.get(i);
+            offset += widths[i];
+        }
+        this.recordSize = offset;
+    }
+
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    public String getFieldName(int field) {
+        return names[field];
+    }
+
+    public RecordFieldType getFieldType(int field) {
+        return types[field];
+    }
+
+    public int getOffset(int field) {
+        return offsets[field];
+    }
+
+    public int getWidth(int field) {
+        return widths[field];
+    }
+
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("未知字段: " + name);
+    }
+
+    // 用于文件头校验，防止用错误的 schema 读取文件
+    public int fingerprint() {
+        int hash = 17;
+        for (int i = 0; i < names.length; i++) {
+            hash = 31 * hash + names[i].hashCode();
+            hash = 31 * hash + types[i].ordinal();
+            hash = 31 * hash + widths[i];
+        }
+        return hash;
+    }
+
+    public static class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<RecordFieldType> types = new ArrayList<>();
+        private final List<Integer> widths = new ArrayList<>();
+
+        public Builder addInt(String name) {
+            return add(name, RecordFieldType.INT, RecordFieldType.INT.getFixedSize());
+        }
+
+        public Builder addLong(String name) {
+            return add(name, RecordFieldType.LONG, RecordFieldType.LONG.getFixedSize());
+        }
+
+        public Builder addDouble(String name) {
+            return add(name, RecordFieldType.DOUBLE, RecordFieldType.DOUBLE.getFixedSize());
+        }
+
+        // maxBytes 为 UTF-8 编码后的最大字节数
+        public Builder addString(String name, int maxBytes) {
+            if (maxBytes <= 0 || maxBytes > 0xFFFF) {
+                throw new IllegalArgumentException("字符串宽度必须在 1..65535 之间: " + maxBytes);
+            }
+            return add(name, RecordFieldType.STRING, 2 + maxBytes);
+        }
+
+        private Builder add(String name, RecordFieldType type, int width) {
+            names.add(name);
+            types.add(type);
+            widths.add(width);
+            return this;
+        }
+
+        public RecordSchema build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("schema 至少需要一个字段");
+            }
+            return new RecordSchema(this);
+        }
+    }
+}
+
+// 文件布局: [magic:int][fingerprint:int][recordSize:int][reserved:int][recordCount:long] + 记录区
+final class RecordFileFormat {
+    static final int MAGIC = 0x52454331; // "REC1"
+    static final int HEADER_SIZE = 24;
+    static final int COUNT_OFFSET = 16;
+
+    private RecordFileFormat() {
+    }
+}
+
+// 批量写入器 - 记录先写入直接内存缓冲区，攒满一批后一次 FileChannel.write
+class RecordFileWriter implements Closeable {
+    private final RecordSchema schema;
+    private final FileChannel channel;
+    private final ByteBuffer batch;
+    private final int recordSize;
+    // 字符串直接编码进批量缓冲区，不为每个字段创建 byte[]
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars;
+    private long recordCount;
+    private int recordStart = -1;
+
+    public RecordFileWriter(Path path, RecordSchema schema, int batchRecords) throws IOException {
+        if (batchRecords <= 0) {
+            throw new IllegalArgumentException("batchRecords 必须大于0: " + batchRecords);
+        }
+        this.schema = schema;
+        this.recordSize = schema.getRecordSize();
+        // 在打开（截断）文件之前检查，避免参数错误时清空已有文件
+        int batchBytes;
+        try {
+            batchBytes = Math.multiplyExact(recordSize, batchRecords);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("批量缓冲区超过 2GB: " + recordSize + " 字节 x " + batchRecords + " 条");
+        }
+        int maxStringBytes = 0;
+        for (int field = 0; field < schema.getFieldCount(); field++) {
+            if (schema.getFieldType(field) == RecordFieldType.STRING) {
+                maxStringBytes = Math.max(maxStringBytes, schema.getWidth(field) - 2);
+            }
+        }
+        // UTF-8 中每个 char 至少占1字节，字符数超过字节上限的字符串一定放不下
+        this.chars = CharBuffer.allocate(maxStringBytes);
+        this.batch = ByteBuffer.allocateDirect(batchBytes).order(ByteOrder.BIG_ENDIAN);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RecordFileFormat.HEADER_SIZE);
+        header.putInt(RecordFileFormat.MAGIC);
+        header.putInt(schema.fingerprint());
+        header.putInt(recordSize);
+        header.putInt(0);
+        header.putLong(0L);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    // 开始一条新记录，未设置的字段保持为0
+    public RecordFileWriter beginRecord() throws IOException {
+        if (recordStart >= 0) {
+            throw new IllegalStateException("上一条记录尚未 endRecord()");
+        }
+        if (batch.remaining() < recordSize) {
+            flushBatch();
+        }
+        recordStart = batch.position();
+        for (int i = 0; i < recordSize; i++) {
+            batch.put(recordStart + i, (byte) 0);
+        }
+        return this;
+    }
+
+    public RecordFileWriter putInt(int field, int value) {
+        checkField(field, RecordFieldType.INT);
+        batch.putInt(recordStart + schema.getOffset(field), value);
+        return this;
+    }
+
+    public RecordFileWriter putLong(int field, long value) {
+        checkField(field, RecordFieldType.LONG);
+        batch.putLong(recordStart + schema.getOffset(field), value);
+        return this;
+    }
+
+    public RecordFileWriter putDouble(int field, double value) {
+        checkField(field, RecordFieldType.DOUBLE);
+        batch.putDouble(recordStart + schema.getOffset(field), value);
+        return this;
+    }
+
+    // 用批量缓冲区的 position/limit 圈出字段内容区，编码器直接写入；超长时清零已写入的部分再报错
+    public RecordFileWriter putString(int field, String value) {
+        checkField(field, RecordFieldType.STRING);
+        int maxBytes = schema.getWidth(field) - 2;
+        int offset = recordStart + schema.getOffset(field);
+        int length = -1;
+        if (value.length() <= maxBytes) {
+            chars.clear();
+            chars.put(value).flip();
+            encoder.reset();
+            batch.limit(offset + 2 + maxBytes).position(offset + 2);
+            if (!encoder.encode(chars, batch, true).isOverflow() && !encoder.flush(batch).isOverflow()) {
+                length = batch.position() - offset - 2;
+            }
+            batch.limit(batch.capacity()).position(recordStart);
+        }
+        if (length < 0) {
+            for (int i = offset + 2; i < offset + 2 + maxBytes; i++) {
+                batch.put(i, (byte) 0);
+            }
+            throw new IllegalArgumentException("字段 " + schema.getFieldName(field)
+                    + " 超出最大长度 " + maxBytes + " 字节");
+        }
+        batch.putShort(offset, (short) length);
+        return this;
+    }
+
+    public void endRecord() {
+        if (recordStart < 0) {
+            throw new IllegalStateException("没有正在写入的记录");
+        }
+        batch.position(recordStart + recordSize);
+        recordStart = -1;
+        recordCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private void checkField(int field, RecordFieldType expected) {
+        if (recordStart < 0) {
+            throw new IllegalStateException("请先调用 beginRecord()");
+        }
+        if (schema.getFieldType(field) != expected) {
+            throw new IllegalArgumentException("字段 " + schema.getFieldName(field)
+                    + " 的类型是 " + schema.getFieldType(field) + "，不是 " + expected);
+        }
+    }
+
+    private void flushBatch() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (recordStart >= 0) {
+                throw new IllegalStateException("最后一条记录尚未 endRecord()");
+            }
+            flushBatch();
+            // 最后回填记录数，读取方以此为准
+            ByteBuffer count = ByteBuffer.allocate(8);
+            count.putLong(0, recordCount);
+            channel.write(count, RecordFileFormat.COUNT_OFFSET);
+        } finally {
+            channel.close();
+        }
+    }
+}
+
+// 随机访问读取器 - 整个文件按段映射为 MappedByteBuffer，按下标直接定位记录
+class RecordFileReader implements Closeable {
+    private final RecordSchema schema;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int recordsPerSegment;
+    private final int recordSize;
+    private final long recordCount;
+
+    public RecordFileReader(Path path, RecordSchema schema) throws IOException {
+        this.schema = schema;
+        this.recordSize = schema.getRecordSize();
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RecordFileFormat.HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("文件头不完整: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != RecordFileFormat.MAGIC) {
+                throw new IOException("不是记录文件: " + path);
+            }
+            if (header.getInt() != schema.fingerprint() || header.getInt() != recordSize) {
+                throw new IOException("文件 schema 与读取 schema 不一致: " + path);
+            }
+            header.getInt();
+            this.recordCount = header.getLong();
+
+            // 单个 MappedByteBuffer 最多 2GB，大文件按整数条记录切段映射
+            this.recordsPerSegment = Integer.MAX_VALUE / recordSize;
+            int segmentCount = (int) ((recordCount + recordsPerSegment - 1) / recordsPerSegment);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i * recordsPerSegment;
+                long records = Math.min(recordsPerSegment, recordCount - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        RecordFileFormat.HEADER_SIZE + first * recordSize, records * recordSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return recordCount;
+    }
+
+    public int getInt(long index, int field) {
+        return segmentOf(index).getInt(positionOf(index, field));
+    }
+
+    public long getLong(long index, int field) {
+        return segmentOf(index).getLong(positionOf(index, field));
+    }
+
+    public double getDouble(long index, int field) {
+        return segmentOf(index).getDouble(positionOf(index, field));
+    }
+
+    public String getString(long index, int field) {
+        MappedByteBuffer segment = segmentOf(index);
+        int position = positionOf(index, field);
+        int length = segment.getShort(position) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        segment.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 批量读取某个 int 列，避免逐条调用
+    public int readInts(int field, long fromIndex, int[] dest) {
+        int n = (int) Math.min(dest.length, recordCount - fromIndex);
+        for (int i = 0; i < n; i++) {
+            dest[i] = getInt(fromIndex + i, field);
+        }
+        return Math.max(n, 0);
+    }
+
+    private MappedByteBuffer segmentOf(long index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("记录下标越界: " + index + "，共 " + recordCount + " 条");
+        }
+        return segments[(int) (index / recordsPerSegment)];
+    }
+
+    private int positionOf(long index, int field) {
+        return (int) (index % recordsPerSegment) * recordSize + schema.getOffset(field);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+public class RecordFileExample {
+    private static final int RECORDS = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== 定长记录文件示例 ===\n");
+
+        // 与 StreamDecoratorExample 相同的记录结构: int + 字符串 + double
+        RecordSchema schema = new RecordSchema.Builder()
+                .addInt("id")
+                .addString("name", 32)
+                .addDouble("value")
+                .build();
+        int id = schema.indexOf("id");
+        int name = schema.indexOf("name");
+        int value = schema.indexOf("value");
+
+        Path recordFile = Files.createTempFile("records", ".rec");
+        Path streamFile = Files.createTempFile("records", ".dat");
+        try {
+            System.out.println("1. 写入与随机访问:");
+            try (RecordFileWriter writer = new RecordFileWriter(recordFile, schema, 4096)) {
+                for (int i = 0; i < 5; i++) {
+                    writer.beginRecord()
+                          .putInt(id, i)
+                          .putString(name, "Hello World " + i)
+                          .putDouble(value, i * 3.14159)
+                          .endRecord();
+                }
+            }
+            try (RecordFileReader reader = new RecordFileReader(recordFile, schema)) {
+                System.out.println("记录总数: " + reader.size());
+                long index = 3;
+                System.out.println("第" + index + "条: id=" + reader.getInt(index, id)
+                        + ", name=" + reader.getString(index, name)
+                        + ", value=" + reader.getDouble(index, value));
+            }
+
+            System.out.println("\n2. 性能对比 (" + RECORDS + " 条记录):");
+            benchmark(schema, recordFile, streamFile);
+        } finally {
+            Files.deleteIfExists(recordFile);
+            Files.deleteIfExists(streamFile);
+        }
+    }
+
+    private static void benchmark(RecordSchema schema, Path recordFile, Path streamFile) throws IOException {
+        int id = schema.indexOf("id");
+        int name = schema.indexOf("name");
+        int value = schema.indexOf("value");
+
+        // 预热一轮，减少 JIT 对结果的影响
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+
+            long start = System.nanoTime();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(streamFile.toFile())))) {
+                for (int i = 0; i < RECORDS; i++) {
+                    out.writeInt(i);
+                    out.writeUTF("record-" + (i & 1023));
+                    out.writeDouble(i * 0.5);
+                }
+            }
+            long streamWrite = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            try (RecordFileWriter writer = new RecordFileWriter(recordFile, schema, 8192)) {
+                for (int i = 0; i < RECORDS; i++) {
+                    writer.beginRecord()
+                          .putInt(id, i)
+                          .putString(name, "record-" + (i & 1023))
+                          .putDouble(value, i * 0.5)
+                          .endRecord();
+                }
+            }
+            long recordWrite = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double streamSum = 0;
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(streamFile.toFile())))) {
+                for (int i = 0; i < RECORDS; i++) {
+                    in.readInt();
+                    in.readUTF();
+                    streamSum += in.readDouble();
+                }
+            }
+            long streamRead = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double recordSum = 0;
+            try (RecordFileReader reader = new RecordFileReader(recordFile, schema)) {
+                for (long i = 0; i < reader.size(); i++) {
+                    recordSum += reader.getDouble(i, value);
+                }
+            }
+            long recordRead = System.nanoTime() - start;
+
+            if (report) {
+                report("装饰器流写入", streamWrite, Files.size(streamFile));
+                report("批量通道写入", recordWrite, Files.size(recordFile));
+                report("装饰器流顺序读取", streamRead, Files.size(streamFile));
+                report("内存映射顺序读取", recordRead, Files.size(recordFile));
+                System.out.println("校验和一致: " + (streamSum == recordSum));
+            }
+        }
+    }
+
+    private static void report(String label, long nanos, long bytes) {
+        double millis = nanos / 1_000_000.0;
+        double mbPerSecond = bytes / 1024.0 / 1024.0 / (nanos / 1_000_000_000.0);
+        System.out.printf("%s: %.1fms, %.1f MB/s%n", label, millis, mbPerSecond);
+    }
+}
@@ -0,0 +1,248 @@
+// Selection Example - 第K小元素选择、部分排序与流式 Top-K
+// 只需要前K个结果时不必完整排序：选择 O(n)，部分排序 O(n + k log k)，流式 Top-K O(n log k)
+
+package designpatterns;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// 选择策略接口 - 返回第 k 小（从0开始）的元素
+// 执行后 array[k] 就是该元素，左侧都不大于它，右侧都不小于它
+interface SelectStrategy {
+    int select(int[] array, int k);
+}
+
+// 内省选择：三数取中的快速选择，递归过深时退化为对剩余区间排序，保证最坏 O(n log n)
+class IntroSelectStrategy implements SelectStrategy {
+    private static final int INSERTION_THRESHOLD = 16;
+
+    @Override
+    public int select(int[] array, int k) {
+        if (k < 0 || k >= array.length) {
+            throw new IndexOutOfBoundsException("k 越界: " + k + "，数组长度 " + array.length);
+        }
+        int low = 0;
+        int high = array.length - 1;
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(array.length));
+        while (high - low > INSERTION_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                Arrays.sort(array, low, high + 1);
+                return array[k];
+            }
+            int mid = (low + high) >>> 1;
+            int pivot = medianOfThree(array[low], array[mid], array[high]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (array[i] < pivot) {
+                    i++;
+                }
+                while (array[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = array[i];
+                    array[i] = array[j];
+                    array[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            // 分区后 [low, j] <= pivot <= [i, high]，(j, i) 之间都等于 pivot
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return array[k];
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            int v = array[i];
+            int j = i - 1;
+            while (j >= low && array[j] > v) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = v;
+        }
+        return array[k];
+    }
+
+    private static int medianOfThree(int a, int b, int c) {
+        return a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+    }
+}
+
+// 流式 Top-K：用大小为 k 的原始类型堆维护当前最大（或最小）的 k 个值，不需要保存全部输入
+class TopKCollector {
+    private final int[] heap;
+    private final boolean largest;
+    private int size;
+
+    // largest 为 true 时保留最大的 k 个（堆顶为其中最小值），否则保留最小的 k 个
+    public TopKCollector(int k, boolean largest) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须大于0: " + k);
+        }
+        this.heap = new int[k];
+        this.largest = largest;
+    }
+
+    public void offer(int value) {
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (before(heap[0], value)) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    public void offerAll(int[] values) {
+        for (int value : values) {
+            offer(value);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 返回结果：largest 时按降序，否则按升序
+    public int[] toSortedArray() {
+        int[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        if (largest) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                int t = result[i];
+                result[i] = result[j];
+                result[j] = t;
+            }
+        }
+        return result;
+    }
+
+    // 堆顶是最先被淘汰的元素：保留最大值时为小顶堆，保留最小值时为大顶堆
+    private boolean before(int a, int b) {
+        return largest ? a < b : a > b;
+    }
+
+    private void siftUp(int i) {
+        int value = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(value, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private void siftDown(int i) {
+        int value = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], value)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+}
+
+// 选择的上下文类，与 Sorter 对应
+class Selector {
+    private SelectStrategy strategy = new IntroSelectStrategy();
+
+    public void setStrategy(SelectStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    // 第 k 小的元素（从0开始），数组会被部分重排
+    public int kthSmallest(int[] array, int k) {
+        return strategy.select(array, k);
+    }
+
+    // 部分排序：执行后 array[0..k) 为最小的 k 个元素且有序，其余位置顺序不定
+    public void partialSort(int[] array, int k) {
+        if (k <= 0) {
+            return;
+        }
+        if (k < array.length) {
+            strategy.select(array, k - 1);
+        }
+        Arrays.sort(array, 0, Math.min(k, array.length));
+    }
+
+    // 最大的 k 个元素（降序），不修改原数组
+    public int[] largestK(int[] array, int k) {
+        TopKCollector collector = new TopKCollector(k, true);
+        collector.offerAll(array);
+        return collector.toSortedArray();
+    }
+
+    // 最小的 k 个元素（升序），不修改原数组
+    public int[] smallestK(int[] array, int k) {
+        TopKCollector collector = new TopKCollector(k, false);
+        collector.offerAll(array);
+        return collector.toSortedArray();
+    }
+}
+
+public class SelectionExample {
+    public static void main(String[] args) {
+        System.out.println("=== 选择策略示例 ===\n");
+
+        Selector selector = new Selector();
+        int[] scores = {64, 34, 25, 12, 22, 11, 90, 88, 47};
+        System.out.println("原始数组: " + Arrays.toString(scores));
+        System.out.println("中位数: " + selector.kthSmallest(scores.clone(), scores.length / 2));
+        System.out.println("前三名: " + Arrays.toString(selector.largestK(scores, 3)));
+
+        int[] partial = scores.clone();
+        selector.partialSort(partial, 4);
+        System.out.println("部分排序前4个: " + Arrays.toString(Arrays.copyOf(partial, 4)));
+
+        System.out.println("\n排行榜查询性能对比 (1000万个分数，取前100名):");
+        int n = 10_000_000;
+        int k = 100;
+        Random random = new Random(42);
+        int[] board = new int[n];
+        for (int i = 0; i < n; i++) {
+            board[i] = random.nextInt(1_000_000);
+        }
+        for (int round = 0; round < 3; round++) {
+            int[] copy = board.clone();
+            long start = System.nanoTime();
+            Arrays.sort(copy);
+            long sortNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int[] top = selector.largestK(board, k);
+            long heapNanos = System.nanoTime() - start;
+
+            copy = board.clone();
+            start = System.nanoTime();
+            int kth = selector.kthSmallest(copy, n - k);
+            long selectNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.printf("完整排序: %.1fms%n", sortNanos / 1e6);
+                System.out.printf("堆 Top-K: %.1fms, 第1名 %d%n", heapNanos / 1e6, top[0]);
+                System.out.printf("内省选择第%d名: %.1fms, 分数 %d (与堆结果一致: %b)%n",
+                        k, selectNanos / 1e6, kth, kth == top[k - 1]);
+            }
+        }
+    }
+}
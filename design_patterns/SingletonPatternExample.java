@@ -1,5 +1,7 @@
 // Singleton Pattern Example - 确保一个类只有一个实例，并提供全局访问点
 
+package designpatterns;
+
 // 饿汉式单例 - 线程安全，类加载时就创建实例
 class EagerSingleton {
     // 在类加载时就创建实例
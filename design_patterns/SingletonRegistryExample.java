@@ -0,0 +1,300 @@
+// Singleton Registry Example - 按类型/名称注册的延迟单例，每个键独立初始化且只初始化一次
+// 没有全局锁：初始化通过每个键自己的 CompletableFuture 协调，初始化完成后读取只是一次普通字段读取
+
+package designpatterns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// 单个延迟单例的句柄，调用方可以缓存它以跳过注册表查找
+final class LazySingletonRef<T> {
+    // final 字段保证看到 Box 引用的线程一定能看到完整构造的实例，所以 box 本身不需要 volatile
+    private static final class Box<T> {
+        final T value;
+
+        Box(T value) {
+            this.value = value;
+        }
+    }
+
+    // 线程 -> 它正在等待初始化完成的句柄，用于发现跨线程的循环依赖
+    private static final ConcurrentHashMap<Thread, LazySingletonRef<?>> WAITING = new ConcurrentHashMap<>();
+
+    private final Object key;
+    private final Supplier<? extends T> factory;
+    private final AtomicReference<CompletableFuture<T>> initialization = new AtomicReference<>();
+    private volatile Thread initializingThread;
+    private Box<T> box;
+
+    LazySingletonRef(Object key, Supplier<? extends T> factory) {
+        this.key = key;
+        this.factory = factory;
+    }
+
+    public T get() {
+        Box<T> current = box;
+        if (current != null) {
+            return current.value;
+        }
+        return initialize();
+    }
+
+    public boolean isInitialized() {
+        return box != null;
+    }
+
+    // 在指定线程池中异步初始化，已初始化或正在初始化时直接复用同一个 future
+    public CompletableFuture<T> initializeAsync(Executor executor) {
+        CompletableFuture<T> existing = initialization.get();
+        if (existing != null) {
+            return existing;
+        }
+        return CompletableFuture.supplyAsync(this::get, executor);
+    }
+
+    private T initialize() {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> existing = initialization.compareAndExchange(null, mine);
+        if (existing != null) {
+            Thread current = Thread.currentThread();
+            // 先登记再检查：两个线程同时互相等待时，后检查的一方一定能看到对方的登记
+            WAITING.put(current, this);
+            try {
+                checkCycle(current);
+                return existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            } finally {
+                WAITING.remove(current);
+            }
+        }
+        initializingThread = Thread.currentThread();
+        try {
+            T value = factory.get();
+            box = new Box<>(value);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // 失败后允许下一次调用重新初始化，当前等待者收到同样的异常
+            initialization.set(null);
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            initializingThread = null;
+        }
+    }
+
+    // 沿"正在初始化的线程 -> 它在等待的句柄"追溯，回到当前线程说明依赖成环，继续等待会永久阻塞
+    // 抛出后当前线程的初始化失败，环上其他线程等待的 future 随之异常完成
+    private void checkCycle(Thread current) {
+        LazySingletonRef<?> ref = this;
+        for (int depth = 0; ref != null && depth <= WAITING.size(); depth++) {
+            Thread owner = ref.initializingThread;
+            if (owner == null) {
+                return;
+            }
+            if (owner == current) {
+                throw new IllegalStateException("单例 " + key + " 存在循环依赖");
+            }
+            ref = WAITING.get(owner);
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+
+    Object getKey() {
+        return key;
+    }
+}
+
+// 单例注册表 - 键可以是 Class 或名称
+class SingletonRegistry {
+    private final ConcurrentHashMap<Object, LazySingletonRef<?>> refs = new ConcurrentHashMap<>();
+    private final SingletonStartupProfiler profiler;
+
+    // 启动参数 -Ddesignpatterns.singleton.profile=true 时自动开启启动耗时统计
+    public SingletonRegistry() {
+        this(SingletonStartupProfiler.enabledByProperty() ? new SingletonStartupProfiler() : null);
+    }
+
+    public SingletonRegistry(SingletonStartupProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public <T> LazySingletonRef<T> register(Class<T> type, Supplier<? extends T> factory) {
+        return register((Object) type, factory);
+    }
+
+    public <T> LazySingletonRef<T> register(String name, Supplier<? extends T> factory) {
+        return register((Object) name, factory);
+    }
+
+    private <T> LazySingletonRef<T> register(Object key, Supplier<? extends T> factory) {
+        if (profiler != null) {
+            factory = profiler.instrument(key, factory);
+        }
+        LazySingletonRef<T> ref = new LazySingletonRef<>(key, factory);
+        if (refs.putIfAbsent(key, ref) != null) {
+            throw new IllegalStateException("重复注册单例: " + key);
+        }
+        return ref;
+    }
+
+    public <T> T get(Class<T> type) {
+        return type.cast(ref(type).get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name) {
+        return (T) ref(name).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> LazySingletonRef<T> ref(Object key) {
+        LazySingletonRef<?> ref = refs.get(key);
+        if (ref == null) {
+            throw new IllegalArgumentException("未注册的单例: " + key);
+        }
+        return (LazySingletonRef<T>) ref;
+    }
+
+    // 按名称查找：名称键直接匹配，类型键按类的全限定名匹配；不存在时返回 null
+    @SuppressWarnings("unchecked")
+    public <T> LazySingletonRef<T> refByName(String name) {
+        LazySingletonRef<?> ref = refs.get(name);
+        if (ref == null) {
+            for (LazySingletonRef<?> candidate : refs.values()) {
+                if (SingletonStartupProfiler.keyName(candidate.getKey()).equals(name)) {
+                    ref = candidate;
+                    break;
+                }
+            }
+        }
+        return (LazySingletonRef<T>) ref;
+    }
+
+    public SingletonStartupProfiler getProfiler() {
+        return profiler;
+    }
+
+    // 冷启动预热：所有尚未初始化的单例并行初始化，互相依赖的单例会自动等待对方
+    // 初始化任务会阻塞等待依赖，建议传入不限线程数的线程池（JDK 21+ 可用虚拟线程）
+    public CompletableFuture<Void> initializeAll(Executor executor) {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (LazySingletonRef<?> ref : refs.values()) {
+            if (!ref.isInitialized()) {
+                futures.add(ref.initializeAsync(executor));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    public int size() {
+        return refs.size();
+    }
+}
+
+public class SingletonRegistryExample {
+    // 模拟初始化很慢的服务
+    static final class HeavyService {
+        static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+        private final String name;
+
+        HeavyService(String name, long initMillis) {
+            try {
+                Thread.sleep(initMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.name = name;
+            CONSTRUCTED.incrementAndGet();
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== 单例注册表示例 ===\n");
+
+        System.out.println("1. 多线程同时获取，只初始化一次:");
+        SingletonRegistry registry = new SingletonRegistry();
+        registry.register(HeavyService.class, () -> new HeavyService("配置中心", 100));
+        // 已有的单例也可以注册进来统一管理
+        registry.register(LazySingleton.class, LazySingleton::getInstanceDoubleCheck);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        HeavyService[] seen = new HeavyService[threads];
+        for (int i = 0; i < threads; i++) {
+            final int id = i;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    seen[id] = registry.get(HeavyService.class);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        boolean same = true;
+        for (HeavyService service : seen) {
+            same &= service == seen[0];
+        }
+        System.out.println("构造次数: " + HeavyService.CONSTRUCTED.get() + ", 所有线程拿到同一实例: " + same);
+        registry.get(LazySingleton.class).showMessage();
+
+        System.out.println("\n2. 冷启动并行预热 (20个服务，各需100ms初始化):");
+        SingletonRegistry services = new SingletonRegistry();
+        for (int i = 0; i < 20; i++) {
+            String name = "service-" + i;
+            services.register(name, () -> new HeavyService(name, 100));
+        }
+        // 有依赖关系的服务：初始化时获取另一个单例
+        services.register("gateway", () -> {
+            HeavyService dependency = services.get("service-0");
+            return new HeavyService("gateway -> " + dependency.getName(), 100);
+        });
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        long startTime = System.currentTimeMillis();
+        services.initializeAll(executor).join();
+        System.out.println("并行预热 " + services.size() + " 个单例耗时: "
+                + (System.currentTimeMillis() - startTime) + "ms (串行约 "
+                + services.size() * 100 + "ms)");
+        executor.shutdown();
+
+        HeavyService gateway = services.get("gateway");
+        System.out.println("依赖注入结果: " + gateway.getName());
+
+        System.out.println("\n3. 缓存句柄，初始化后读取只是一次字段访问:");
+        LazySingletonRef<HeavyService> ref = registry.ref(HeavyService.class);
+        System.out.println("句柄已初始化: " + ref.isInitialized()
+                + ", 与查表结果相同: " + (ref.get() == registry.get(HeavyService.class)));
+    }
+}
@@ -0,0 +1,310 @@
+// Singleton Warm-Up Example - 启动耗时统计与单例预热计划
+// 饿汉式把构造成本放在类加载（拖慢启动），懒汉式放在第一次请求（首个请求延迟突增）
+// 先在统计模式下记录每个单例的类初始化和构造耗时，再据此在启动后由后台线程预热耗时较长的单例
+
+package designpatterns;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// 启动耗时统计器 - 记录每个单例的类初始化耗时、构造耗时以及首次被请求的时间点
+final class SingletonStartupProfiler {
+    static final String PROPERTY = "designpatterns.singleton.profile";
+
+    static final class Record {
+        private final String name;
+        private volatile long classInitNanos;
+        private volatile long constructNanos;
+        private volatile long firstRequestOffsetNanos = -1;
+
+        Record(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getClassInitNanos() {
+            return classInitNanos;
+        }
+
+        public long getConstructNanos() {
+            return constructNanos;
+        }
+
+        // 相对统计器创建时刻的偏移，-1 表示本次启动中未被请求
+        public long getFirstRequestOffsetNanos() {
+            return firstRequestOffsetNanos;
+        }
+
+        public long getTotalNanos() {
+            return classInitNanos + constructNanos;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Record> records = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+
+    static boolean enabledByProperty() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    static String keyName(Object key) {
+        return key instanceof Class ? ((Class<?>) key).getName() : String.valueOf(key);
+    }
+
+    // 包装单例工厂：类型键先单独统计类初始化（静态字段、静态代码块），再统计构造
+    <T> Supplier<T> instrument(Object key, Supplier<? extends T> factory) {
+        Record record = record(keyName(key));
+        return () -> {
+            long start = System.nanoTime();
+            if (record.firstRequestOffsetNanos < 0) {
+                record.firstRequestOffsetNanos = start - startNanos;
+            }
+            if (key instanceof Class) {
+                initializeClass(((Class<?>) key).getName(), ((Class<?>) key).getClassLoader());
+                long initialized = System.nanoTime();
+                record.classInitNanos = initialized - start;
+                start = initialized;
+            }
+            T value = factory.get();
+            record.constructNanos = System.nanoTime() - start;
+            return value;
+        };
+    }
+
+    // 统计未注册到注册表的类（如 EagerSingleton）的加载与初始化耗时
+    public Class<?> loadClass(String className) throws ClassNotFoundException {
+        Record record = record(className);
+        long start = System.nanoTime();
+        if (record.firstRequestOffsetNanos < 0) {
+            record.firstRequestOffsetNanos = start - startNanos;
+        }
+        Class<?> type = Class.forName(className, true, SingletonStartupProfiler.class.getClassLoader());
+        record.classInitNanos = System.nanoTime() - start;
+        return type;
+    }
+
+    private static void initializeClass(String className, ClassLoader loader) {
+        try {
+            Class.forName(className, true, loader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("无法初始化类: " + className, e);
+        }
+    }
+
+    private Record record(String name) {
+        return records.computeIfAbsent(name, Record::new);
+    }
+
+    // 按总耗时降序
+    public List<Record> getRecords() {
+        List<Record> result = new ArrayList<>(records.values());
+        result.sort(Comparator.comparingLong(Record::getTotalNanos).reversed());
+        return result;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-40s %10s %10s %12s%n", "单例", "类初始化", "构造", "首次请求"));
+        for (Record record : getRecords()) {
+            sb.append(String.format("%-40s %8.2fms %8.2fms %10s%n", record.name,
+                    record.classInitNanos / 1e6, record.constructNanos / 1e6,
+                    record.firstRequestOffsetNanos < 0 ? "-"
+                            : String.format("%.1fms", record.firstRequestOffsetNanos / 1e6)));
+        }
+        return sb.toString();
+    }
+
+    // 每行一个单例：名称\t类初始化纳秒\t构造纳秒，供下一次启动制定预热计划
+    public void saveTo(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Record record : getRecords()) {
+                writer.write(record.name + "\t" + record.classInitNanos + "\t" + record.constructNanos);
+                writer.newLine();
+            }
+        }
+    }
+
+    public static List<Record> loadFrom(Path file) throws IOException {
+        List<Record> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split("\t");
+                if (parts.length != 3) {
+                    throw new IOException("无效的统计记录: " + line);
+                }
+                Record record = new Record(parts[0]);
+                record.classInitNanos = Long.parseLong(parts[1]);
+                record.constructNanos = Long.parseLong(parts[2]);
+                result.add(record);
+            }
+        }
+        return result;
+    }
+}
+
+// 预热计划 - 需要后台预热的单例（按耗时降序）与保持懒加载的单例
+final class WarmUpPlan {
+    private final List<String> warmUp;
+    private final List<String> lazy;
+
+    WarmUpPlan(List<String> warmUp, List<String> lazy) {
+        this.warmUp = Collections.unmodifiableList(warmUp);
+        this.lazy = Collections.unmodifiableList(lazy);
+    }
+
+    public List<String> getWarmUp() {
+        return warmUp;
+    }
+
+    public List<String> getLazy() {
+        return lazy;
+    }
+
+    // 在后台执行预热，立即返回；注册表中的单例走各自的初始化 future，
+    // 未注册的名称按类名加载并初始化，统计记录过期（类已不存在）时忽略
+    public CompletableFuture<Void> execute(SingletonRegistry registry, Executor executor) {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (String name : warmUp) {
+            LazySingletonRef<?> ref = registry.refByName(name);
+            if (ref != null) {
+                futures.add(ref.initializeAsync(executor));
+            } else {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        Class.forName(name, true, WarmUpPlan.class.getClassLoader());
+                    } catch (ClassNotFoundException ignored) {
+                        // 统计文件来自旧版本
+                    }
+                }, executor));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // 预热用的守护线程池：低优先级，不阻止 JVM 退出
+    public static ExecutorService newBackgroundExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "singleton-warmup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "预热: " + warmUp + ", 懒加载: " + lazy;
+    }
+}
+
+// 预热计划生成器 - 类初始化加构造总耗时不低于阈值的单例会在后台预热
+class SingletonWarmUpPlanner {
+    private final long thresholdNanos;
+
+    public SingletonWarmUpPlanner(long thresholdNanos) {
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    public WarmUpPlan plan(Collection<SingletonStartupProfiler.Record> records) {
+        List<SingletonStartupProfiler.Record> sorted = new ArrayList<>(records);
+        // 先启动最慢的，整体预热完成时间最短
+        sorted.sort(Comparator.comparingLong(SingletonStartupProfiler.Record::getTotalNanos).reversed());
+        List<String> warmUp = new ArrayList<>();
+        List<String> lazy = new ArrayList<>();
+        for (SingletonStartupProfiler.Record record : sorted) {
+            if (record.getTotalNanos() >= thresholdNanos) {
+                warmUp.add(record.getName());
+            } else {
+                lazy.add(record.getName());
+            }
+        }
+        return new WarmUpPlan(warmUp, lazy);
+    }
+}
+
+public class SingletonWarmUpExample {
+    private static final String[] SERVICES = {"config", "templateEngine", "ruleEngine", "metrics"};
+    private static final long[] INIT_MILLIS = {5, 80, 120, 0};
+
+    private static SingletonRegistry boot(SingletonStartupProfiler profiler) {
+        SingletonRegistry registry = new SingletonRegistry(profiler);
+        for (int i = 0; i < SERVICES.length; i++) {
+            String name = SERVICES[i];
+            long millis = INIT_MILLIS[i];
+            registry.register(name, () -> new SingletonRegistryExample.HeavyService(name, millis));
+        }
+        return registry;
+    }
+
+    // 模拟第一个请求：用到所有服务
+    private static long firstRequestNanos(SingletonRegistry registry) {
+        long start = System.nanoTime();
+        for (String name : SERVICES) {
+            registry.get(name);
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== 单例启动预热示例 ===\n");
+
+        System.out.println("1. 统计模式启动，记录各单例耗时:");
+        SingletonStartupProfiler profiler = new SingletonStartupProfiler();
+        SingletonRegistry profiled = boot(profiler);
+        profiler.loadClass("designpatterns.EagerSingleton");
+        firstRequestNanos(profiled);
+        System.out.print(profiler.report());
+
+        Path profile = Files.createTempFile("singleton-profile", ".tsv");
+        try {
+            profiler.saveTo(profile);
+
+            System.out.println("\n2. 普通启动，全部懒加载:");
+            SingletonRegistry lazy = boot(null);
+            System.out.printf("首个请求耗时: %.1fms%n", firstRequestNanos(lazy) / 1e6);
+
+            System.out.println("\n3. 按统计结果生成预热计划 (阈值10ms):");
+            WarmUpPlan plan = new SingletonWarmUpPlanner(10_000_000L)
+                    .plan(SingletonStartupProfiler.loadFrom(profile));
+            System.out.println(plan);
+
+            long bootStart = System.nanoTime();
+            SingletonRegistry warmed = boot(null);
+            ExecutorService executor = WarmUpPlan.newBackgroundExecutor(2);
+            CompletableFuture<Void> warmUp = plan.execute(warmed, executor);
+            System.out.printf("启动完成耗时: %.1fms (预热在后台进行)%n", (System.nanoTime() - bootStart) / 1e6);
+
+            // 启动后到第一个请求到达之间的空闲时间
+            Thread.sleep(200);
+            System.out.println("预热是否已完成: " + warmUp.isDone());
+            System.out.printf("首个请求耗时: %.1fms%n", firstRequestNanos(warmed) / 1e6);
+            executor.shutdown();
+        } finally {
+            Files.deleteIfExists(profile);
+        }
+    }
+}
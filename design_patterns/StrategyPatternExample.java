@@ -1,5 +1,7 @@
 // Strategy Pattern Example - 定义一系列算法，把它们一个个封装起来，并且使它们可相互替换
 
+package designpatterns;
+
 // 策略接口
 interface PaymentStrategy {
     void pay(double amount);
@@ -17,9 +19,9 @@ class CreditCardStrategy implements PaymentStrategy {
     
     @Override
     public void pay(double amount) {
-        System.out.println("使用信用卡支付 $" + amount);
-        System.out.println("持卡人: " + name);
-        System.out.println("卡号: " + cardNumber);
+        ConsoleOutput.println("使用信用卡支付 $" + amount);
+        ConsoleOutput.println("持卡人: " + name);
+        ConsoleOutput.println("卡号: " + cardNumber);
     }
 }
 
@@ -33,9 +35,9 @@ class AlipayStrategy implements PaymentStrategy {
     
     @Override
     public void pay(double amount) {
-        System.out.println("使用支付宝支付 $" + amount);
-        System.out.println("手机号: " + mobileNumber);
-        System.out.println("跳转到支付宝APP...");
+        ConsoleOutput.println("使用支付宝支付 $" + amount);
+        ConsoleOutput.println("手机号: " + mobileNumber);
+        ConsoleOutput.println("跳转到支付宝APP...");
     }
 }
 
@@ -49,9 +51,9 @@ class WechatPayStrategy implements PaymentStrategy {
     
     @Override
     public void pay(double amount) {
-        System.out.println("使用微信支付 $" + amount);
-        System.out.println("OpenID: " + openid);
-        System.out.println("打开微信扫描二维码...");
+        ConsoleOutput.println("使用微信支付 $" + amount);
+        ConsoleOutput.println("OpenID: " + openid);
+        ConsoleOutput.println("打开微信扫描二维码...");
     }
 }
 
@@ -63,10 +65,15 @@ class ShoppingCart {
     public ShoppingCart() {
         this.totalAmount = 0;
     }
-    
+
+    // 从持久化日志恢复购物车时使用
+    protected ShoppingCart(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
     public void addItem(double price) {
         totalAmount += price;
-        System.out.println("添加商品，价格: $" + price);
+        ConsoleOutput.println("添加商品，价格: $" + price);
     }
     
     public void setPaymentStrategy(PaymentStrategy strategy) {
@@ -75,19 +82,24 @@ class ShoppingCart {
     
     public void checkout() {
         if (paymentStrategy == null) {
-            System.out.println("请选择支付方式！");
+            ConsoleOutput.println("请选择支付方式！");
             return;
         }
         
-        System.out.println("\n开始结账...");
-        System.out.println("总金额: $" + totalAmount);
+        ConsoleOutput.println("\n开始结账...");
+        ConsoleOutput.println("总金额: $" + totalAmount);
         paymentStrategy.pay(totalAmount);
-        System.out.println("支付成功！\n");
+        ConsoleOutput.println("支付成功！\n");
     }
     
     public double getTotalAmount() {
         return totalAmount;
     }
+
+    // 结账后清空金额，供需要与持久化状态保持一致的子类调用
+    protected void resetTotal() {
+        totalAmount = 0;
+    }
 }
 
 // 排序策略示例
@@ -98,7 +110,7 @@ interface SortStrategy {
 class BubbleSortStrategy implements SortStrategy {
     @Override
     public void sort(int[] array) {
-        System.out.println("使用冒泡排序");
+        ConsoleOutput.println("使用冒泡排序");
         int n = array.length;
         for (int i = 0; i < n - 1; i++) {
             for (int j = 0; j < n - i - 1; j++) {
@@ -115,7 +127,7 @@ class BubbleSortStrategy implements SortStrategy {
 class QuickSortStrategy implements SortStrategy {
     @Override
     public void sort(int[] array) {
-        System.out.println("使用快速排序");
+        ConsoleOutput.println("使用快速排序");
         quickSort(array, 0, array.length - 1);
     }
     
@@ -145,18 +157,42 @@ class QuickSortStrategy implements SortStrategy {
     }
 }
 
+// 三种数组类型都默认使用快速排序
 class Sorter {
-    private SortStrategy strategy;
+    private SortStrategy strategy = new QuickSortStrategy();
+    private LongSortStrategy longStrategy = new LongQuickSortStrategy();
+    private DoubleSortStrategy doubleStrategy = new DoubleQuickSortStrategy();
     
     public void setStrategy(SortStrategy strategy) {
         this.strategy = strategy;
     }
     
+    public void setLongStrategy(LongSortStrategy longStrategy) {
+        this.longStrategy = longStrategy;
+    }
+    
+    public void setDoubleStrategy(DoubleSortStrategy doubleStrategy) {
+        this.doubleStrategy = doubleStrategy;
+    }
+    
     public void sortArray(int[] array) {
         if (strategy != null) {
             strategy.sort(array);
         }
     }
+    
+    // long/double 数组走专用策略，全程不装箱
+    public void sortArray(long[] array) {
+        if (longStrategy != null) {
+            longStrategy.sort(array);
+        }
+    }
+    
+    public void sortArray(double[] array) {
+        if (doubleStrategy != null) {
+            doubleStrategy.sort(array);
+        }
+    }
 }
 
 public class StrategyPatternExample {